@@ -0,0 +1,119 @@
+/*
+* MathLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.mathlib.algebra;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels written with the incubating Vector API of the JDK. This class is
+ * compiled separately for Java 17 and only loaded by Kernels if the JVM was
+ * started with --add-modules jdk.incubator.vector. Every kernel processes as
+ * many values as fit into the preferred vector register of the CPU at once and
+ * finishes the remaining values with a scalar loop.
+ *
+ * @author ChriZ98
+ */
+final class VectorKernels implements Kernels.Vectorized {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int len) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(len); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).add(DoubleVector.fromArray(SPECIES, b, bOff + i)).intoArray(c, cOff + i);
+        }
+        for (; i < len; i++) {
+            c[cOff + i] = a[aOff + i] + b[bOff + i];
+        }
+    }
+
+    @Override
+    public void sub(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int len) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(len); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).sub(DoubleVector.fromArray(SPECIES, b, bOff + i)).intoArray(c, cOff + i);
+        }
+        for (; i < len; i++) {
+            c[cOff + i] = a[aOff + i] - b[bOff + i];
+        }
+    }
+
+    @Override
+    public void mul(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int len) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(len); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).mul(DoubleVector.fromArray(SPECIES, b, bOff + i)).intoArray(c, cOff + i);
+        }
+        for (; i < len; i++) {
+            c[cOff + i] = a[aOff + i] * b[bOff + i];
+        }
+    }
+
+    @Override
+    public void addScalar(double[] a, int aOff, double s, double[] c, int cOff, int len) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(len); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).add(s).intoArray(c, cOff + i);
+        }
+        for (; i < len; i++) {
+            c[cOff + i] = a[aOff + i] + s;
+        }
+    }
+
+    @Override
+    public void scale(double[] a, int aOff, double s, double[] c, int cOff, int len) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(len); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).mul(s).intoArray(c, cOff + i);
+        }
+        for (; i < len; i++) {
+            c[cOff + i] = s * a[aOff + i];
+        }
+    }
+
+    @Override
+    public void axpy(double s, double[] b, int bOff, double[] c, int cOff, int len) {
+        DoubleVector factor = DoubleVector.broadcast(SPECIES, s);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(len); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, b, bOff + i).fma(factor, DoubleVector.fromArray(SPECIES, c, cOff + i)).intoArray(c, cOff + i);
+        }
+        for (; i < len; i++) {
+            c[cOff + i] += s * b[bOff + i];
+        }
+    }
+
+    @Override
+    public double dot(double[] a, int aOff, double[] b, int bOff, int len) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(len); i < bound; i += SPECIES.length()) {
+            acc = DoubleVector.fromArray(SPECIES, a, aOff + i).fma(DoubleVector.fromArray(SPECIES, b, bOff + i), acc);
+        }
+        double s = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < len; i++) {
+            s += a[aOff + i] * b[bOff + i];
+        }
+        return s;
+    }
+
+    @Override
+    public double sum(double[] a, int aOff, int len) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(len); i < bound; i += SPECIES.length()) {
+            acc = acc.add(DoubleVector.fromArray(SPECIES, a, aOff + i));
+        }
+        double s = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < len; i++) {
+            s += a[aOff + i];
+        }
+        return s;
+    }
+}
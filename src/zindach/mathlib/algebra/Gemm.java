@@ -0,0 +1,592 @@
+/*
+* MathLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.mathlib.algebra;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Cache and register blocked kernel for general matrix multiplication. The
+ * operands are split into tiles that fit into the caches. Every tile is packed
+ * into a contiguous panel before a small register blocked kernel multiplies
+ * the panels. Products below a size threshold are calculated with the simple
+ * ikj-Algorithm because packing does not pay off for them. Large products are
+ * split into blocks of the result and calculated in parallel on a fork join
+ * pool. An optional epilogue adds a bias and applies a function to every
+ * finished block of the result while it is still in the cache.
+ *
+ * @author ChriZ98
+ */
+public final class Gemm {
+
+    private static final int MR = 4, NR = 4;
+    private static final ThreadLocal<double[][]> PANELS = new ThreadLocal<>();
+    private static volatile int mc = 64, kc = 256, nc = 1024;
+    private static volatile long threshold = 8 * 8 * 8;
+    private static volatile long parallelThreshold = 1L << 20;
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+    private static ForkJoinPool ownPool;
+
+    /**
+     * Utility class. Should not be instantiated.
+     */
+    private Gemm() {
+    }
+
+    /**
+     * Sets the tile sizes used for blocking. The rows of the left operand are
+     * blocked by mc, the shared dimension by kc and the columns of the right
+     * operand by nc. A packed kc x nc panel should fit into the L2 or L3 cache
+     * and a packed mc x kc panel into the L2 cache.
+     *
+     * @param mc number of rows per tile
+     * @param kc length of the shared dimension per tile
+     * @param nc number of columns per tile
+     */
+    public static void setTileSizes(int mc, int kc, int nc) {
+        if (mc < 1 || kc < 1 || nc < 1) {
+            throw new IllegalArgumentException("Tile sizes must be positive");
+        }
+        Gemm.mc = mc;
+        Gemm.kc = kc;
+        Gemm.nc = nc;
+    }
+
+    /**
+     * Sets the number of multiply-add operations from which on the blocked
+     * kernel is used.
+     *
+     * @param threshold minimal product of all three dimensions
+     */
+    public static void setThreshold(long threshold) {
+        Gemm.threshold = threshold;
+    }
+
+    /**
+     * Sets the number of multiply-add operations from which on the product is
+     * calculated in parallel. Smaller products are calculated by the calling
+     * thread.
+     *
+     * @param parallelThreshold minimal product of all three dimensions
+     */
+    public static void setParallelThreshold(long parallelThreshold) {
+        Gemm.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Sets the pool used for parallel multiplication. The given pool is owned
+     * by the caller and is not shut down by this class, a pool that was
+     * created by setParallelism before is shut down. Running multiplications
+     * finish on the old pool, but the pool should not be replaced while other
+     * threads start new ones.
+     *
+     * @param pool pool to run the parallel tasks on
+     */
+    public static synchronized void setPool(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool must not be null");
+        }
+        ForkJoinPool old = Gemm.pool;
+        Gemm.pool = pool;
+        if (old == ownPool && old != pool) {
+            ownPool = null;
+            old.shutdown();
+        }
+    }
+
+    /**
+     * Replaces the pool used for parallel multiplication by a new pool with
+     * the given number of threads. A parallelism of one disables parallel
+     * multiplication. The pool is kept if it already has the given number of
+     * threads, otherwise a pool created by an earlier call is shut down.
+     *
+     * @param parallelism number of threads
+     */
+    public static synchronized void setParallelism(int parallelism) {
+        if (pool.getParallelism() == parallelism) {
+            return;
+        }
+        ForkJoinPool created = new ForkJoinPool(parallelism);
+        setPool(created);
+        ownPool = created;
+    }
+
+    /**
+     * Gets the pool used for parallel multiplication.
+     *
+     * @return current pool
+     */
+    public static ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Calculates C += A * B. The entry (i, l) of A is located at index aOff +
+     * i * ars + l * acs of its array. B is addressed the same
+     * way. A transposed operand is passed by swapping its two strides, so
+     * that no transposed copy has to be created. C is stored row by row.
+     *
+     * @param n rows of A and C
+     * @param p columns of B and C
+     * @param k columns of A and rows of B
+     * @param a values of A
+     * @param aOff index of the first entry of A
+     * @param ars distance between two rows of A
+     * @param acs distance between two columns of A
+     * @param b values of B
+     * @param bOff index of the first entry of B
+     * @param brs distance between two rows of B
+     * @param bcs distance between two columns of B
+     * @param c values of C
+     * @param cOff index of the first entry of C
+     * @param cStride row stride of C
+     */
+    static void multiply(int n, int p, int k, double[] a, int aOff, int ars, int acs,
+            double[] b, int bOff, int brs, int bcs, double[] c, int cOff, int cStride) {
+        multiply(n, p, k, a, aOff, ars, acs, b, bOff, brs, bcs, c, cOff, cStride, null);
+    }
+
+    /**
+     * Calculates C += A * B and applies the epilogue to every finished block
+     * of C.
+     *
+     * @see #multiply(int, int, int, double[], int, int, int, double[], int,
+     * int, int, double[], int, int)
+     * @param e epilogue to apply, may be null
+     */
+    static void multiply(int n, int p, int k, double[] a, int aOff, int ars, int acs,
+            double[] b, int bOff, int brs, int bcs, double[] c, int cOff, int cStride, Epilogue e) {
+        ForkJoinPool pool = Gemm.pool;
+        if (k == 0) {
+            if (e != null) {
+                e.apply(0, 0, n, p, c, cOff, cStride);
+            }
+        } else if (p == 1) {
+            multiplyColumn(n, k, a, aOff, ars, acs, b, bOff, brs, c, cOff, cStride, e);
+        } else if (n == 1 || (long) n * p * k < threshold) {
+            multiplySimple(n, p, k, a, aOff, ars, acs, b, bOff, brs, bcs, c, cOff, cStride, e);
+        } else if ((long) n * p * k < parallelThreshold || pool.getParallelism() < 2) {
+            multiplyBlocked(n, p, k, a, aOff, ars, acs, b, bOff, brs, bcs, c, cOff, cStride, e, 0, 0);
+        } else {
+            long grain = Math.max((long) n * p * k / (4L * pool.getParallelism()), parallelThreshold / 4);
+            pool.invoke(new MultiplyTask(n, p, k, a, aOff, ars, acs, b, bOff, brs, bcs, c, cOff, cStride, e, 0, 0, grain));
+        }
+    }
+
+    /**
+     * Calculates C += A * b for a single column b. Every entry of C is the dot
+     * product of one row of A with b.
+     */
+    static void multiplyColumn(int n, int k, double[] a, int aOff, int ars, int acs,
+            double[] b, int bOff, int brs, double[] c, int cOff, int cStride, Epilogue e) {
+        for (int i = 0; i < n; i++) {
+            int aRow = aOff + i * ars;
+            double s = 0;
+            if (acs == 1 && brs == 1) {
+                s = Kernels.dot(a, aRow, b, bOff, k);
+            } else {
+                for (int l = 0; l < k; l++) {
+                    s += a[aRow + l * acs] * b[bOff + l * brs];
+                }
+            }
+            c[cOff + i * cStride] += s;
+            if (e != null) {
+                e.apply(i, 0, 1, 1, c, cOff + i * cStride, cStride);
+            }
+        }
+    }
+
+    /**
+     * Calculates C += A * B without blocking. The loop order is chosen so that
+     * the innermost loop runs over contiguous values: ikj if the rows of A and
+     * B are contiguous, kij if A is transposed and ijk with dot products if B
+     * is transposed. The epilogue is applied to every row as soon as it is
+     * finished.
+     */
+    static void multiplySimple(int n, int p, int k, double[] a, int aOff, int ars, int acs,
+            double[] b, int bOff, int brs, int bcs, double[] c, int cOff, int cStride, Epilogue e) {
+        if (bcs == 1 && acs == 1) {
+            for (int i = 0; i < n; i++) {
+                int aRow = aOff + i * ars, cRow = cOff + i * cStride;
+                for (int l = 0; l < k; l++) {
+                    double ail = a[aRow + l];
+                    int bRow = bOff + l * brs;
+                    Kernels.axpy(ail, b, bRow, c, cRow, p);
+                }
+                if (e != null) {
+                    e.apply(i, 0, 1, p, c, cRow, cStride);
+                }
+            }
+        } else if (bcs == 1) {
+            for (int l = 0; l < k; l++) {
+                int aCol = aOff + l * acs, bRow = bOff + l * brs;
+                for (int i = 0; i < n; i++) {
+                    double ail = a[aCol + i * ars];
+                    Kernels.axpy(ail, b, bRow, c, cOff + i * cStride, p);
+                }
+            }
+            if (e != null) {
+                e.apply(0, 0, n, p, c, cOff, cStride);
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                int aRow = aOff + i * ars, cRow = cOff + i * cStride;
+                for (int j = 0; j < p; j++) {
+                    int bCol = bOff + j * bcs;
+                    if (acs == 1 && brs == 1) {
+                        c[cRow + j] += Kernels.dot(a, aRow, b, bCol, k);
+                    } else {
+                        double s = 0;
+                        for (int l = 0; l < k; l++) {
+                            s += a[aRow + l * acs] * b[bCol + l * brs];
+                        }
+                        c[cRow + j] += s;
+                    }
+                }
+                if (e != null) {
+                    e.apply(i, 0, 1, p, c, cRow, cStride);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates C += A * B using packed panels and the register blocked
+     * kernel. The epilogue is applied to a tile of C right after its last
+     * panel was added. i0 and j0 give the position of this block inside the
+     * whole result.
+     */
+    static void multiplyBlocked(int n, int p, int k, double[] a, int aOff, int ars, int acs,
+            double[] b, int bOff, int brs, int bcs, double[] c, int cOff, int cStride,
+            Epilogue e, int i0, int j0) {
+        int mc = Gemm.mc, kc = Gemm.kc, nc = Gemm.nc;
+        double[][] panels = panels(mc, kc, nc);
+        double[] packedA = panels[0], packedB = panels[1], edge = panels[2];
+        for (int jc = 0; jc < p; jc += nc) {
+            int ncb = Math.min(nc, p - jc);
+            for (int pc = 0; pc < k; pc += kc) {
+                int kcb = Math.min(kc, k - pc);
+                packB(kcb, ncb, b, bOff + pc * brs + jc * bcs, brs, bcs, packedB);
+                for (int ic = 0; ic < n; ic += mc) {
+                    int mcb = Math.min(mc, n - ic);
+                    packA(mcb, kcb, a, aOff + ic * ars + pc * acs, ars, acs, packedA);
+                    for (int jr = 0; jr < ncb; jr += NR) {
+                        int nr = Math.min(NR, ncb - jr);
+                        for (int ir = 0; ir < mcb; ir += MR) {
+                            int mr = Math.min(MR, mcb - ir);
+                            kernel(kcb, packedA, ir * kcb, packedB, jr * kcb,
+                                    c, cOff + (ic + ir) * cStride + jc + jr, cStride, mr, nr, edge);
+                        }
+                    }
+                    if (e != null && pc + kcb == k) {
+                        e.apply(i0 + ic, j0 + jc, mcb, ncb, c, cOff + ic * cStride + jc, cStride);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the packing buffers of the current thread. The buffers are reused
+     * between calls and only grow if the tile sizes are increased.
+     */
+    private static double[][] panels(int mc, int kc, int nc) {
+        double[][] panels = PANELS.get();
+        int sizeA = roundUp(mc, MR) * kc, sizeB = kc * roundUp(nc, NR);
+        if (panels == null || panels[0].length < sizeA || panels[1].length < sizeB) {
+            panels = new double[][]{new double[sizeA], new double[sizeB], new double[MR * NR]};
+            PANELS.set(panels);
+        }
+        return panels;
+    }
+
+    /**
+     * Rounds x up to the next multiple of r.
+     */
+    private static int roundUp(int x, int r) {
+        return (x + r - 1) / r * r;
+    }
+
+    /**
+     * Packs a tile of A into panels of MR rows. Inside a panel the MR values of
+     * one column are stored next to each other. Missing rows are filled with
+     * zeros. The tile is read along its contiguous direction.
+     */
+    private static void packA(int rows, int cols, double[] a, int off, int rs, int cs, double[] packed) {
+        int pos = 0;
+        for (int i = 0; i < rows; i += MR) {
+            int mr = Math.min(MR, rows - i);
+            if (cs == 1) {
+                for (int r = 0; r < MR; r++) {
+                    if (r < mr) {
+                        int row = off + (i + r) * rs;
+                        for (int l = 0; l < cols; l++) {
+                            packed[pos + l * MR + r] = a[row + l];
+                        }
+                    } else {
+                        for (int l = 0; l < cols; l++) {
+                            packed[pos + l * MR + r] = 0;
+                        }
+                    }
+                }
+            } else {
+                for (int l = 0; l < cols; l++) {
+                    int col = off + l * cs + i * rs;
+                    int dst = pos + l * MR;
+                    for (int r = 0; r < MR; r++) {
+                        packed[dst + r] = r < mr ? a[col + r * rs] : 0;
+                    }
+                }
+            }
+            pos += MR * cols;
+        }
+    }
+
+    /**
+     * Packs a tile of B into panels of NR columns. Inside a panel the NR values
+     * of one row are stored next to each other. Missing columns are filled with
+     * zeros. The tile is read along its contiguous direction.
+     */
+    private static void packB(int rows, int cols, double[] b, int off, int rs, int cs, double[] packed) {
+        int pos = 0;
+        for (int j = 0; j < cols; j += NR) {
+            int nr = Math.min(NR, cols - j);
+            if (rs == 1) {
+                for (int s = 0; s < NR; s++) {
+                    if (s < nr) {
+                        int col = off + (j + s) * cs;
+                        for (int l = 0; l < rows; l++) {
+                            packed[pos + l * NR + s] = b[col + l];
+                        }
+                    } else {
+                        for (int l = 0; l < rows; l++) {
+                            packed[pos + l * NR + s] = 0;
+                        }
+                    }
+                }
+            } else {
+                for (int l = 0; l < rows; l++) {
+                    int row = off + l * rs + j * cs;
+                    int dst = pos + l * NR;
+                    for (int s = 0; s < NR; s++) {
+                        packed[dst + s] = s < nr ? b[row + s * cs] : 0;
+                    }
+                }
+            }
+            pos += NR * rows;
+        }
+    }
+
+    /**
+     * Multiplies an MR x kc panel of A with a kc x NR panel of B and adds the
+     * result to C. The 4 x 4 block of C is held in local variables so that it
+     * stays in registers during the whole loop. Blocks at the border of C are
+     * written through the edge buffer.
+     */
+    private static void kernel(int kcb, double[] pa, int aPos, double[] pb, int bPos,
+            double[] c, int cPos, int cStride, int mr, int nr, double[] edge) {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+        for (int l = 0; l < kcb; l++) {
+            int ai = aPos + l * MR, bi = bPos + l * NR;
+            double a0 = pa[ai], a1 = pa[ai + 1], a2 = pa[ai + 2], a3 = pa[ai + 3];
+            double b0 = pb[bi], b1 = pb[bi + 1], b2 = pb[bi + 2], b3 = pb[bi + 3];
+            c00 += a0 * b0;
+            c01 += a0 * b1;
+            c02 += a0 * b2;
+            c03 += a0 * b3;
+            c10 += a1 * b0;
+            c11 += a1 * b1;
+            c12 += a1 * b2;
+            c13 += a1 * b3;
+            c20 += a2 * b0;
+            c21 += a2 * b1;
+            c22 += a2 * b2;
+            c23 += a2 * b3;
+            c30 += a3 * b0;
+            c31 += a3 * b1;
+            c32 += a3 * b2;
+            c33 += a3 * b3;
+        }
+        if (mr == MR && nr == NR) {
+            int r0 = cPos, r1 = r0 + cStride, r2 = r1 + cStride, r3 = r2 + cStride;
+            c[r0] += c00;
+            c[r0 + 1] += c01;
+            c[r0 + 2] += c02;
+            c[r0 + 3] += c03;
+            c[r1] += c10;
+            c[r1 + 1] += c11;
+            c[r1 + 2] += c12;
+            c[r1 + 3] += c13;
+            c[r2] += c20;
+            c[r2 + 1] += c21;
+            c[r2 + 2] += c22;
+            c[r2 + 3] += c23;
+            c[r3] += c30;
+            c[r3 + 1] += c31;
+            c[r3 + 2] += c32;
+            c[r3 + 3] += c33;
+        } else {
+            edge[0] = c00;
+            edge[1] = c01;
+            edge[2] = c02;
+            edge[3] = c03;
+            edge[4] = c10;
+            edge[5] = c11;
+            edge[6] = c12;
+            edge[7] = c13;
+            edge[8] = c20;
+            edge[9] = c21;
+            edge[10] = c22;
+            edge[11] = c23;
+            edge[12] = c30;
+            edge[13] = c31;
+            edge[14] = c32;
+            edge[15] = c33;
+            for (int r = 0; r < mr; r++) {
+                for (int s = 0; s < nr; s++) {
+                    c[cPos + r * cStride + s] += edge[r * NR + s];
+                }
+            }
+        }
+    }
+
+    /**
+     * Task calculating one block of the result. Blocks that are too large are
+     * split in half along their longer side. The split points are aligned to
+     * the register block size so that only the outermost blocks contain
+     * partial register blocks.
+     */
+    private static class MultiplyTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final int n, p, k, aOff, ars, acs, bOff, brs, bcs, cOff, cStride, i0, j0;
+        private final double[] a, b, c;
+        private final Epilogue e;
+        private final long grain;
+
+        MultiplyTask(int n, int p, int k, double[] a, int aOff, int ars, int acs,
+                double[] b, int bOff, int brs, int bcs, double[] c, int cOff, int cStride,
+                Epilogue e, int i0, int j0, long grain) {
+            this.n = n;
+            this.p = p;
+            this.k = k;
+            this.a = a;
+            this.aOff = aOff;
+            this.ars = ars;
+            this.acs = acs;
+            this.b = b;
+            this.bOff = bOff;
+            this.brs = brs;
+            this.bcs = bcs;
+            this.c = c;
+            this.cOff = cOff;
+            this.cStride = cStride;
+            this.e = e;
+            this.i0 = i0;
+            this.j0 = j0;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            boolean splitRows = n >= p && n >= 2 * MR;
+            boolean splitCols = !splitRows && p >= 2 * NR;
+            if ((long) n * p * k <= grain || (!splitRows && !splitCols)) {
+                multiplyBlocked(n, p, k, a, aOff, ars, acs, b, bOff, brs, bcs, c, cOff, cStride, e, i0, j0);
+            } else if (splitRows) {
+                int half = roundUp(n / 2, MR);
+                invokeAll(new MultiplyTask(half, p, k, a, aOff, ars, acs, b, bOff, brs, bcs,
+                        c, cOff, cStride, e, i0, j0, grain),
+                        new MultiplyTask(n - half, p, k, a, aOff + half * ars, ars, acs, b, bOff, brs, bcs,
+                                c, cOff + half * cStride, cStride, e, i0 + half, j0, grain));
+            } else {
+                int half = roundUp(p / 2, NR);
+                invokeAll(new MultiplyTask(n, half, k, a, aOff, ars, acs, b, bOff, brs, bcs,
+                        c, cOff, cStride, e, i0, j0, grain),
+                        new MultiplyTask(n, p - half, k, a, aOff, ars, acs, b, bOff + half * bcs, brs, bcs,
+                                c, cOff + half, cStride, e, i0, j0 + half, grain));
+            }
+        }
+    }
+
+    /**
+     * Operation applied to finished blocks of the result. Adds a bias value to
+     * every row and, if a function is given, writes the function of every new
+     * value into a second matrix. An epilogue only keeps references to the
+     * bias and the destination, so it can be reused for every product with
+     * them.
+     */
+    public static final class Epilogue {
+
+        private final double[] bias;
+        private final DoubleUnaryOperator f;
+        private final double[] out;
+        private final int outOff, outStride;
+
+        /**
+         * Initializes the epilogue.
+         *
+         * @param bias value to add to every entry of a row, one per row
+         * @param f function to apply, may be null
+         * @param F matrix receiving the function values, may be null if there
+         * is no function
+         */
+        public Epilogue(Vector bias, DoubleUnaryOperator f, Matrix F) {
+            this.bias = bias.getArray();
+            this.f = f;
+            this.out = F == null ? null : F.getData();
+            this.outOff = F == null ? 0 : F.getOffset();
+            this.outStride = F == null ? 0 : F.getStride();
+        }
+
+        /**
+         * Checks whether the epilogue uses the given bias, function and
+         * destination, so that it can be reused instead of creating a new one.
+         *
+         * @param bias value to add to every entry of a row, one per row
+         * @param f function to apply, may be null
+         * @param F matrix receiving the function values, may be null if there
+         * is no function
+         * @return true if the epilogue does the same
+         */
+        public boolean isFor(Vector bias, DoubleUnaryOperator f, Matrix F) {
+            return this.bias == bias.getArray() && this.f == f
+                    && (F == null ? out == null : out == F.getData() && outOff == F.getOffset() && outStride == F.getStride());
+        }
+
+        /**
+         * Applies the epilogue to a block of the result.
+         *
+         * @param i0 row of the block inside the whole result
+         * @param j0 column of the block inside the whole result
+         * @param rows number of rows in the block
+         * @param cols number of columns in the block
+         * @param c values of the result
+         * @param cPos index of the first entry of the block
+         * @param cStride row stride of the result
+         */
+        void apply(int i0, int j0, int rows, int cols, double[] c, int cPos, int cStride) {
+            for (int i = 0; i < rows; i++) {
+                double bi = bias[i0 + i];
+                int cRow = cPos + i * cStride;
+                if (f == null) {
+                    Kernels.addScalar(c, cRow, bi, c, cRow, cols);
+                } else {
+                    int outRow = outOff + (i0 + i) * outStride + j0;
+                    for (int j = 0; j < cols; j++) {
+                        double v = c[cRow + j] + bi;
+                        c[cRow + j] = v;
+                        out[outRow + j] = f.applyAsDouble(v);
+                    }
+                }
+            }
+        }
+    }
+}
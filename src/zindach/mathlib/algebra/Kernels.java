@@ -0,0 +1,206 @@
+/*
+* MathLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.mathlib.algebra;
+
+/**
+ * Element wise kernels shared by all matrix and vector classes. Every kernel
+ * works on a contiguous range of an array and consists of one simple counted
+ * loop without branches, which the JIT compiler turns into SIMD instructions.
+ * Reductions use four independent accumulators because the compiler is not
+ * allowed to reorder floating point additions on its own. If the JVM runs on
+ * Java 17 or later and was started with --add-modules jdk.incubator.vector,
+ * the kernels are replaced by VectorKernels, which uses the Vector API. The
+ * system property zindach.vector=false keeps the scalar kernels.
+ *
+ * @author ChriZ98
+ */
+final class Kernels {
+
+    private static final Vectorized VECTORIZED = loadVectorized();
+
+    /**
+     * Utility class. Should not be instantiated.
+     */
+    private Kernels() {
+    }
+
+    /**
+     * Loads the Vector API kernels if they are available.
+     *
+     * @return Vector API kernels or null to use the scalar kernels
+     */
+    private static Vectorized loadVectorized() {
+        if (!Boolean.parseBoolean(System.getProperty("zindach.vector", "true"))) {
+            return null;
+        }
+        try {
+            return (Vectorized) Class.forName("zindach.mathlib.algebra.VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the kernels use the Vector API.
+     *
+     * @return true if the Vector API kernels were loaded
+     */
+    static boolean isVectorized() {
+        return VECTORIZED != null;
+    }
+
+    /**
+     * Calculates c = a + b.
+     */
+    static void add(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int len) {
+        if (VECTORIZED != null) {
+            VECTORIZED.add(a, aOff, b, bOff, c, cOff, len);
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            c[cOff + i] = a[aOff + i] + b[bOff + i];
+        }
+    }
+
+    /**
+     * Calculates c = a - b.
+     */
+    static void sub(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int len) {
+        if (VECTORIZED != null) {
+            VECTORIZED.sub(a, aOff, b, bOff, c, cOff, len);
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            c[cOff + i] = a[aOff + i] - b[bOff + i];
+        }
+    }
+
+    /**
+     * Calculates c = a * b element wise.
+     */
+    static void mul(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int len) {
+        if (VECTORIZED != null) {
+            VECTORIZED.mul(a, aOff, b, bOff, c, cOff, len);
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            c[cOff + i] = a[aOff + i] * b[bOff + i];
+        }
+    }
+
+    /**
+     * Calculates c = a + s.
+     */
+    static void addScalar(double[] a, int aOff, double s, double[] c, int cOff, int len) {
+        if (VECTORIZED != null) {
+            VECTORIZED.addScalar(a, aOff, s, c, cOff, len);
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            c[cOff + i] = a[aOff + i] + s;
+        }
+    }
+
+    /**
+     * Calculates c = s * a.
+     */
+    static void scale(double[] a, int aOff, double s, double[] c, int cOff, int len) {
+        if (VECTORIZED != null) {
+            VECTORIZED.scale(a, aOff, s, c, cOff, len);
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            c[cOff + i] = s * a[aOff + i];
+        }
+    }
+
+    /**
+     * Calculates c += s * b.
+     */
+    static void axpy(double s, double[] b, int bOff, double[] c, int cOff, int len) {
+        if (VECTORIZED != null) {
+            VECTORIZED.axpy(s, b, bOff, c, cOff, len);
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            c[cOff + i] += s * b[bOff + i];
+        }
+    }
+
+    /**
+     * Sets every value to s.
+     */
+    static void fill(double[] c, int cOff, double s, int len) {
+        for (int i = 0; i < len; i++) {
+            c[cOff + i] = s;
+        }
+    }
+
+    /**
+     * Calculates the dot product of a and b.
+     */
+    static double dot(double[] a, int aOff, double[] b, int bOff, int len) {
+        if (VECTORIZED != null) {
+            return VECTORIZED.dot(a, aOff, b, bOff, len);
+        }
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i <= len - 4; i += 4) {
+            s0 += a[aOff + i] * b[bOff + i];
+            s1 += a[aOff + i + 1] * b[bOff + i + 1];
+            s2 += a[aOff + i + 2] * b[bOff + i + 2];
+            s3 += a[aOff + i + 3] * b[bOff + i + 3];
+        }
+        for (; i < len; i++) {
+            s0 += a[aOff + i] * b[bOff + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Calculates the sum of all values.
+     */
+    static double sum(double[] a, int aOff, int len) {
+        if (VECTORIZED != null) {
+            return VECTORIZED.sum(a, aOff, len);
+        }
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i <= len - 4; i += 4) {
+            s0 += a[aOff + i];
+            s1 += a[aOff + i + 1];
+            s2 += a[aOff + i + 2];
+            s3 += a[aOff + i + 3];
+        }
+        for (; i < len; i++) {
+            s0 += a[aOff + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Kernels that replace the scalar kernels. Implemented by VectorKernels,
+     * which is compiled separately because it needs Java 17.
+     */
+    interface Vectorized {
+
+        void add(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int len);
+
+        void sub(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int len);
+
+        void mul(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int len);
+
+        void addScalar(double[] a, int aOff, double s, double[] c, int cOff, int len);
+
+        void scale(double[] a, int aOff, double s, double[] c, int cOff, int len);
+
+        void axpy(double s, double[] b, int bOff, double[] c, int cOff, int len);
+
+        double dot(double[] a, int aOff, double[] b, int bOff, int len);
+
+        double sum(double[] a, int aOff, int len);
+    }
+}
@@ -5,28 +5,65 @@
  */
 package zindach.mathlib.algebra;
 
-import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Representation of a real matrix with customizable widht and height. First
  * index is always the row number and second index is always the column number.
+ * All values are stored row by row in one array. The entry (i, j) is located
+ * at index offset + i * stride + j. Views share the array of another matrix
+ * and only differ in offset, size and stride, so taking a view never copies
+ * any value.
  *
  * @author ChriZ98
  */
 public class Matrix {
 
-    private final int n, m;
-    private final double[][] A;
+    private static final int BLOCK = 64;
+    private final int n, m, stride, off;
+    private final double[] a;
 
     /**
-     * Initializes the matrix using predefined values.
+     * Initializes the matrix using values stored row by row in a flat array.
+     * The array is used directly and not copied.
+     *
+     * @param n number of rows
+     * @param m number of columns
+     * @param a values that the matrix should consist of
+     */
+    public Matrix(int n, int m, double[] a) {
+        this(n, m, m, 0, a);
+    }
+
+    /**
+     * Initializes the matrix as a window of a flat array. The array is used
+     * directly and not copied.
+     *
+     * @param n number of rows
+     * @param m number of columns
+     * @param stride distance between the first entries of two rows
+     * @param off index of the entry (0, 0)
+     * @param a array that holds the values
+     */
+    private Matrix(int n, int m, int stride, int off, double[] a) {
+        this.n = n;
+        this.m = m;
+        this.stride = stride;
+        this.off = off;
+        this.a = a;
+    }
+
+    /**
+     * Initializes the matrix using predefined values. The values are copied
+     * into the flat storage of the matrix.
      *
      * @param A values that the matrix should consist of
      */
     public Matrix(double[][] A) {
-        this.A = A;
-        this.n = A.length;
-        this.m = A[0].length;
+        this(A.length, A[0].length);
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(A[i], 0, a, off + i * stride, m);
+        }
     }
 
     /**
@@ -36,7 +73,7 @@ public class Matrix {
      * @param m number of columns
      */
     public Matrix(int n, int m) {
-        this(new double[n][m]);
+        this(n, m, new double[n * m]);
     }
 
     /**
@@ -46,14 +83,59 @@ public class Matrix {
      */
     public Matrix(Vector... cols) {
         this(cols[0].getN(), cols.length);
-        for (int j = 0; j < m; j++) {
-            double[] b = cols[j].getArray();
+        for (int j0 = 0; j0 < m; j0 += BLOCK) {
+            int j1 = Math.min(j0 + BLOCK, m);
             for (int i = 0; i < n; i++) {
-                A[i][j] = b[i];
+                int row = off + i * stride;
+                for (int j = j0; j < j1; j++) {
+                    a[row + j] = cols[j].getArray()[i];
+                }
             }
         }
     }
 
+    /**
+     * Gets a view of consecutive columns. The view shares the values with
+     * this matrix, so changes to one of them are reflected by the other.
+     *
+     * @param j0 first column of the view
+     * @param cols number of columns
+     * @return view of size n x cols
+     */
+    public Matrix viewCols(int j0, int cols) {
+        return view(0, j0, n, cols);
+    }
+
+    /**
+     * Gets a view of consecutive rows. The view shares the values with this
+     * matrix, so changes to one of them are reflected by the other.
+     *
+     * @param i0 first row of the view
+     * @param rows number of rows
+     * @return view of size rows x m
+     */
+    public Matrix viewRows(int i0, int rows) {
+        return view(i0, 0, rows, m);
+    }
+
+    /**
+     * Gets a view of a rectangular window. The view shares the values with
+     * this matrix, so changes to one of them are reflected by the other.
+     *
+     * @param i0 first row of the view
+     * @param j0 first column of the view
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return view of size rows x cols
+     */
+    public Matrix view(int i0, int j0, int rows, int cols) {
+        if (i0 < 0 || j0 < 0 || rows < 0 || cols < 0 || i0 + rows > n || j0 + cols > m) {
+            throw new IndexOutOfBoundsException("View " + rows + " x " + cols + " at (" + i0 + ", " + j0
+                    + ") exceeds matrix of size " + n + " x " + m);
+        }
+        return new Matrix(rows, cols, stride, off + i0 * stride + j0, a);
+    }
+
     /**
      * Transposes the Matrix. Imagine it being like an 90 degree rotation.
      * Columns become rows and rows become columns.
@@ -61,10 +143,21 @@ public class Matrix {
      * @return transposed matrix
      */
     public Matrix transpose() {
-        Matrix C = new Matrix(m, n);
+        return transposeInto(new Matrix(m, n));
+    }
+
+    /**
+     * Transposes the Matrix and writes the result into a destination matrix
+     * of size m x n. The destination must not be this matrix.
+     *
+     * @param C destination matrix
+     * @return destination matrix
+     */
+    public Matrix transposeInto(Matrix C) {
         for (int i = 0; i < n; i++) {
+            int row = off + i * stride;
             for (int j = 0; j < m; j++) {
-                C.A[j][i] = A[i][j];
+                C.a[C.off + j * C.stride + i] = a[row + j];
             }
         }
         return C;
@@ -77,16 +170,35 @@ public class Matrix {
      * @return resulting matrix
      */
     public Matrix addVec(Vector b) {
-        Matrix C = new Matrix(n, m);
+        return addVecInto(b, new Matrix(n, m));
+    }
+
+    /**
+     * Adds a vector to every column in the matrix and writes the result into a
+     * destination matrix of the same size.
+     *
+     * @param b vector to be added to the columns
+     * @param C destination matrix, may be this matrix
+     * @return destination matrix
+     */
+    public Matrix addVecInto(Vector b, Matrix C) {
         double[] ba = b.getArray();
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < m; j++) {
-                C.A[i][j] = A[i][j] + ba[i];
-            }
+            Kernels.addScalar(a, off + i * stride, ba[i], C.a, C.off + i * C.stride, m);
         }
         return C;
     }
 
+    /**
+     * Adds a vector to every column in this matrix.
+     *
+     * @param b vector to be added to the columns
+     * @return this matrix
+     */
+    public Matrix addVecInPlace(Vector b) {
+        return addVecInto(b, this);
+    }
+
     /**
      * Adds another matrix.
      *
@@ -94,15 +206,57 @@ public class Matrix {
      * @return resulting matrix
      */
     public Matrix addMat(Matrix B) {
-        Matrix C = new Matrix(n, m);
+        return addMatInto(B, new Matrix(n, m));
+    }
+
+    /**
+     * Adds another matrix and writes the result into a destination matrix of
+     * the same size.
+     *
+     * @param B matrix with values to add
+     * @param C destination matrix, may be this matrix or B
+     * @return destination matrix
+     */
+    public Matrix addMatInto(Matrix B, Matrix C) {
+        if (isContiguous() && B.isContiguous() && C.isContiguous()) {
+            Kernels.add(a, off, B.a, B.off, C.a, C.off, n * m);
+            return C;
+        }
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < m; j++) {
-                C.A[i][j] = A[i][j] + B.A[i][j];
-            }
+            Kernels.add(a, off + i * stride, B.a, B.off + i * B.stride, C.a, C.off + i * C.stride, m);
         }
         return C;
     }
 
+    /**
+     * Adds another matrix to this matrix.
+     *
+     * @param B matrix with values to add
+     * @return this matrix
+     */
+    public Matrix addMatInPlace(Matrix B) {
+        return addMatInto(B, this);
+    }
+
+    /**
+     * Adds a multiple of another matrix to this matrix. Calculates A += s * B
+     * in one pass.
+     *
+     * @param B matrix with values to add
+     * @param s scalar to multiply the values of B with
+     * @return this matrix
+     */
+    public Matrix addMatScaledInPlace(Matrix B, double s) {
+        if (isContiguous() && B.isContiguous()) {
+            Kernels.axpy(s, B.a, B.off, a, off, n * m);
+            return this;
+        }
+        for (int i = 0; i < n; i++) {
+            Kernels.axpy(s, B.a, B.off + i * B.stride, a, off + i * stride, m);
+        }
+        return this;
+    }
+
     /**
      * Subtracts another Matrix.
      *
@@ -110,27 +264,247 @@ public class Matrix {
      * @return resulting matrix
      */
     public Matrix subMat(Matrix B) {
-        Matrix C = new Matrix(n, m);
+        return subMatInto(B, new Matrix(n, m));
+    }
+
+    /**
+     * Subtracts another matrix and writes the result into a destination matrix
+     * of the same size.
+     *
+     * @param B matrix with values to subtract
+     * @param C destination matrix, may be this matrix or B
+     * @return destination matrix
+     */
+    public Matrix subMatInto(Matrix B, Matrix C) {
+        if (isContiguous() && B.isContiguous() && C.isContiguous()) {
+            Kernels.sub(a, off, B.a, B.off, C.a, C.off, n * m);
+            return C;
+        }
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < m; j++) {
-                C.A[i][j] = A[i][j] - B.A[i][j];
-            }
+            Kernels.sub(a, off + i * stride, B.a, B.off + i * B.stride, C.a, C.off + i * C.stride, m);
         }
         return C;
     }
 
     /**
-     * Multiplies with another Matrix. Uses the ikj-Algorithm.
+     * Subtracts another matrix from this matrix.
+     *
+     * @param B matrix with values to subtract
+     * @return this matrix
+     */
+    public Matrix subMatInPlace(Matrix B) {
+        return subMatInto(B, this);
+    }
+
+    /**
+     * Multiplies with another Matrix. Small products use the ikj-Algorithm,
+     * larger ones the cache blocked kernel of Gemm.
      *
      * @param B matrix to multiply with
      * @return resulting matrix
      */
     public Matrix mulMat(Matrix B) {
-        Matrix C = new Matrix(n, B.m);
+        return mulMatInto(B, new Matrix(n, B.m));
+    }
+
+    /**
+     * Multiplies with another matrix and writes the result into a destination
+     * matrix of size n x B.m. The previous values of the destination are
+     * overwritten. The destination must not be one of the operands.
+     *
+     * @param B matrix to multiply with
+     * @param C destination matrix
+     * @return destination matrix
+     */
+    public Matrix mulMatInto(Matrix B, Matrix C) {
+        C.fill(0);
+        Gemm.multiply(n, B.m, m, a, off, stride, 1, B.a, B.off, B.stride, 1, C.a, C.off, C.stride);
+        return C;
+    }
+
+    /**
+     * Multiplies with another matrix and adds a vector to every column of the
+     * product. The bias is added to every block of the product right after it
+     * was calculated, so no additional pass over the result is needed. The
+     * destination must not be one of the operands.
+     *
+     * @param B matrix to multiply with
+     * @param b vector to be added to the columns of the product
+     * @param C destination matrix of size n x B.m
+     * @return destination matrix
+     */
+    public Matrix mulMatAddVecInto(Matrix B, Vector b, Matrix C) {
+        return mulMatInto(B, C, new Gemm.Epilogue(b, null, null));
+    }
+
+    /**
+     * Multiplies with another matrix, adds a vector to every column of the
+     * product and applies a function to every resulting value. The sum and
+     * the function values are both written in the same sweep over every
+     * block of the product. This calculates a whole layer of a neural network
+     * at once. The destinations must not be one of the operands.
+     *
+     * @param B matrix to multiply with
+     * @param b vector to be added to the columns of the product
+     * @param C destination matrix of size n x B.m for the sums
+     * @param f function to apply to every sum
+     * @param F destination matrix of size n x B.m for the function values
+     * @return destination matrix with the function values
+     */
+    public Matrix mulMatAddVecInto(Matrix B, Vector b, Matrix C, DoubleUnaryOperator f, Matrix F) {
+        mulMatInto(B, C, new Gemm.Epilogue(b, f, F));
+        return F;
+    }
+
+    /**
+     * Multiplies with another matrix and applies an epilogue to every block of
+     * the product right after it was calculated. Works like mulMatAddVecInto,
+     * but the epilogue can be created once and reused for every product with
+     * the same bias and destinations, so no object is allocated. The
+     * destinations must not be one of the operands.
+     *
+     * @param B matrix to multiply with
+     * @param C destination matrix of size n x B.m for the sums
+     * @param e epilogue adding the bias and applying the function
+     * @return destination matrix with the sums
+     */
+    public Matrix mulMatInto(Matrix B, Matrix C, Gemm.Epilogue e) {
+        C.fill(0);
+        Gemm.multiply(n, B.m, m, a, off, stride, 1, B.a, B.off, B.stride, 1, C.a, C.off, C.stride, e);
+        return C;
+    }
+
+    /**
+     * Multiplies the transpose of this matrix with another matrix. Calculates
+     * the same as transpose().mulMat(B) without creating the transposed copy.
+     *
+     * @param B matrix to multiply with, must have n rows
+     * @return resulting matrix of size m x B.m
+     */
+    public Matrix mulTransposeA(Matrix B) {
+        return mulTransposeAInto(B, new Matrix(m, B.m));
+    }
+
+    /**
+     * Multiplies the transpose of this matrix with another matrix and writes
+     * the result into a destination matrix of size m x B.m. The previous
+     * values of the destination are overwritten. The destination must not be
+     * one of the operands.
+     *
+     * @param B matrix to multiply with, must have n rows
+     * @param C destination matrix
+     * @return destination matrix
+     */
+    public Matrix mulTransposeAInto(Matrix B, Matrix C) {
+        C.fill(0);
+        Gemm.multiply(m, B.m, n, a, off, 1, stride, B.a, B.off, B.stride, 1, C.a, C.off, C.stride);
+        return C;
+    }
+
+    /**
+     * Multiplies with the transpose of another matrix. Calculates the same as
+     * mulMat(B.transpose()) without creating the transposed copy.
+     *
+     * @param B matrix whose transpose to multiply with, must have m columns
+     * @return resulting matrix of size n x B.n
+     */
+    public Matrix mulTransposeB(Matrix B) {
+        return mulTransposeBInto(B, new Matrix(n, B.n));
+    }
+
+    /**
+     * Multiplies with the transpose of another matrix and writes the result
+     * into a destination matrix of size n x B.n. The previous values of the
+     * destination are overwritten. The destination must not be one of the
+     * operands.
+     *
+     * @param B matrix whose transpose to multiply with, must have m columns
+     * @param C destination matrix
+     * @return destination matrix
+     */
+    public Matrix mulTransposeBInto(Matrix B, Matrix C) {
+        C.fill(0);
+        Gemm.multiply(n, B.n, m, a, off, stride, 1, B.a, B.off, 1, B.stride, C.a, C.off, C.stride);
+        return C;
+    }
+
+    /**
+     * Multiplies with a sparse matrix and writes the result into a destination
+     * matrix of size n x B.m. Only the values of B other than zero are
+     * visited. The previous values of the destination are overwritten.
+     *
+     * @param B sparse matrix to multiply with
+     * @param C destination matrix
+     * @return destination matrix
+     */
+    public Matrix mulMatInto(SparseMatrix B, Matrix C) {
+        return mulMatAddVecInto(B, null, C, null, null);
+    }
+
+    /**
+     * Multiplies with a sparse matrix, adds a vector to every column of the
+     * product and applies a function to every resulting value. Works like
+     * the dense version but only visits the values of B other than zero. The
+     * bias and the function are optional.
+     *
+     * @param B sparse matrix to multiply with
+     * @param b vector to be added to the columns of the product or null
+     * @param C destination matrix of size n x B.m for the sums
+     * @param f function to apply to every sum or null
+     * @param F destination matrix of size n x B.m for the function values
+     * @return destination matrix with the function values or C if there is no
+     * function
+     */
+    public Matrix mulMatAddVecInto(SparseMatrix B, Vector b, Matrix C, DoubleUnaryOperator f, Matrix F) {
+        int[] colPtr = B.getColPointers();
+        int[] rowIdx = B.getRowIndices();
+        double[] values = B.getValues();
+        double[] bias = b == null ? null : b.getArray();
+        int co = B.getColOffset();
+        for (int j = 0; j < B.getM(); j++) {
+            int start = colPtr[co + j], end = colPtr[co + j + 1];
+            for (int i = 0; i < n; i++) {
+                int row = off + i * stride;
+                double s = bias == null ? 0 : bias[i];
+                for (int p = start; p < end; p++) {
+                    s += a[row + rowIdx[p]] * values[p];
+                }
+                C.a[C.off + i * C.stride + j] = s;
+                if (f != null) {
+                    F.a[F.off + i * F.stride + j] = f.applyAsDouble(s);
+                }
+            }
+        }
+        return f == null ? C : F;
+    }
+
+    /**
+     * Multiplies with the transpose of a sparse matrix and writes the result
+     * into a destination matrix of size n x B.n. Only the values of B other
+     * than zero are visited, so columns of the destination that belong to
+     * rows of B without any value stay zero. The previous values of the
+     * destination are overwritten.
+     *
+     * @param B sparse matrix whose transpose to multiply with, must have m
+     * columns
+     * @param C destination matrix
+     * @return destination matrix
+     */
+    public Matrix mulTransposeBInto(SparseMatrix B, Matrix C) {
+        C.fill(0);
+        int[] colPtr = B.getColPointers();
+        int[] rowIdx = B.getRowIndices();
+        double[] values = B.getValues();
+        int co = B.getColOffset();
         for (int i = 0; i < n; i++) {
-            for (int k = 0; k < B.n; k++) {
-                for (int j = 0; j < B.m; j++) {
-                    C.A[i][j] += A[i][k] * B.A[k][j];
+            int row = off + i * stride, cRow = C.off + i * C.stride;
+            for (int j = 0; j < m; j++) {
+                double e = a[row + j];
+                if (e == 0) {
+                    continue;
+                }
+                for (int p = colPtr[co + j]; p < colPtr[co + j + 1]; p++) {
+                    C.a[cRow + rowIdx[p]] += e * values[p];
                 }
             }
         }
@@ -145,15 +519,38 @@ public class Matrix {
      * @return resulting matrix
      */
     public Matrix hadamardMat(Matrix B) {
-        Matrix C = new Matrix(n, m);
+        return hadamardMatInto(B, new Matrix(n, m));
+    }
+
+    /**
+     * Takes the hadamard product with another matrix and writes the result
+     * into a destination matrix of the same size.
+     *
+     * @param B matrix with values to multiply with
+     * @param C destination matrix, may be this matrix or B
+     * @return destination matrix
+     */
+    public Matrix hadamardMatInto(Matrix B, Matrix C) {
+        if (isContiguous() && B.isContiguous() && C.isContiguous()) {
+            Kernels.mul(a, off, B.a, B.off, C.a, C.off, n * m);
+            return C;
+        }
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < m; j++) {
-                C.A[i][j] = A[i][j] * B.A[i][j];
-            }
+            Kernels.mul(a, off + i * stride, B.a, B.off + i * B.stride, C.a, C.off + i * C.stride, m);
         }
         return C;
     }
 
+    /**
+     * Multiplies the values of this matrix with the values of another matrix.
+     *
+     * @param B matrix with values to multiply with
+     * @return this matrix
+     */
+    public Matrix hadamardMatInPlace(Matrix B) {
+        return hadamardMatInto(B, this);
+    }
+
     /**
      * Multiplies with a column vector.
      *
@@ -161,14 +558,24 @@ public class Matrix {
      * @return resulting vector
      */
     public Vector mulVec(Vector b) {
-        double[] c = new double[n];
+        return mulVecInto(b, new Vector(n));
+    }
+
+    /**
+     * Multiplies with a column vector and writes the result into a destination
+     * vector of size n. The destination must not be b.
+     *
+     * @param b vector to multiply with
+     * @param c destination vector
+     * @return destination vector
+     */
+    public Vector mulVecInto(Vector b, Vector c) {
         double[] ba = b.getArray();
+        double[] ca = c.getArray();
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < m; j++) {
-                c[i] += A[i][j] * ba[j];
-            }
+            ca[i] = Kernels.dot(a, off + i * stride, ba, 0, m);
         }
-        return new Vector(c);
+        return c;
     }
 
     /**
@@ -178,28 +585,90 @@ public class Matrix {
      * @return resulting matrix
      */
     public Matrix mulSca(double s) {
-        Matrix C = new Matrix(n, m);
+        return mulScaInto(s, new Matrix(n, m));
+    }
+
+    /**
+     * Multiplies every single entry with a scalar and writes the result into a
+     * destination matrix of the same size.
+     *
+     * @param s scalar to multiply with
+     * @param C destination matrix, may be this matrix
+     * @return destination matrix
+     */
+    public Matrix mulScaInto(double s, Matrix C) {
+        if (isContiguous() && C.isContiguous()) {
+            Kernels.scale(a, off, s, C.a, C.off, n * m);
+            return C;
+        }
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < m; j++) {
-                C.A[i][j] = s * A[i][j];
-            }
+            Kernels.scale(a, off + i * stride, s, C.a, C.off + i * C.stride, m);
         }
         return C;
     }
 
+    /**
+     * Multiplies every single entry of this matrix with a scalar.
+     *
+     * @param s scalar to multiply with
+     * @return this matrix
+     */
+    public Matrix mulScaInPlace(double s) {
+        return mulScaInto(s, this);
+    }
+
     /**
      * Sums all columns to one vector with size n.
      *
      * @return vector with sum of all columns
      */
     public Vector sumCols() {
-        double[] c = new double[n];
+        return sumColsInto(new Vector(n));
+    }
+
+    /**
+     * Sums all columns and writes the result into a destination vector of size
+     * n.
+     *
+     * @param c destination vector
+     * @return destination vector
+     */
+    public Vector sumColsInto(Vector c) {
+        double[] ca = c.getArray();
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < m; j++) {
-                c[i] += A[i][j];
-            }
+            ca[i] = Kernels.sum(a, off + i * stride, m);
         }
-        return new Vector(c);
+        return c;
+    }
+
+    /**
+     * Sets every entry to the same value.
+     *
+     * @param value value to be set
+     * @return this matrix
+     */
+    public Matrix fill(double value) {
+        if (isContiguous()) {
+            Kernels.fill(a, off, value, n * m);
+            return this;
+        }
+        for (int i = 0; i < n; i++) {
+            Kernels.fill(a, off + i * stride, value, m);
+        }
+        return this;
+    }
+
+    /**
+     * Copies all values into a destination matrix of the same size.
+     *
+     * @param C destination matrix
+     * @return destination matrix
+     */
+    public Matrix copyInto(Matrix C) {
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(a, off + i * stride, C.a, C.off + i * C.stride, m);
+        }
+        return C;
     }
 
     /**
@@ -210,15 +679,42 @@ public class Matrix {
     public Vector[] getCols() {
         Vector[] result = new Vector[m];
         for (int j = 0; j < m; j++) {
-            double[] v = new double[n];
+            result[j] = new Vector(n);
+        }
+        for (int j0 = 0; j0 < m; j0 += BLOCK) {
+            int j1 = Math.min(j0 + BLOCK, m);
             for (int i = 0; i < n; i++) {
-                v[i] = A[i][j];
+                int row = off + i * stride;
+                for (int j = j0; j < j1; j++) {
+                    result[j].getArray()[i] = a[row + j];
+                }
             }
-            result[j] = new Vector(v);
         }
         return result;
     }
 
+    /**
+     * Gets a single entry.
+     *
+     * @param i row index
+     * @param j column index
+     * @return value at the given position
+     */
+    public double get(int i, int j) {
+        return a[off + i * stride + j];
+    }
+
+    /**
+     * Sets a single entry.
+     *
+     * @param i row index
+     * @param j column index
+     * @param value value to be set
+     */
+    public void set(int i, int j, double value) {
+        a[off + i * stride + j] = value;
+    }
+
     /**
      * Gets row count.
      *
@@ -239,11 +735,63 @@ public class Matrix {
     }
 
     /**
-     * Gets all values as array.
+     * Gets the distance between the first entries of two neighbouring rows in
+     * the flat storage.
      *
-     * @return all values as array
+     * @return row stride
      */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Gets the index of the entry (0, 0) in the flat storage.
+     *
+     * @return offset of the first entry
+     */
+    public int getOffset() {
+        return off;
+    }
+
+    /**
+     * Checks whether the rows follow each other without gaps, so that all
+     * values form one contiguous range of the flat storage.
+     *
+     * @return true if the stride equals the column count
+     */
+    public boolean isContiguous() {
+        return stride == m;
+    }
+
+    /**
+     * Gets the flat storage of the matrix. Changes to the returned array are
+     * reflected by the matrix. For views the array is shared with the viewed
+     * matrix, so the entry (i, j) is located at getOffset() + i * getStride()
+     * + j.
+     *
+     * @return all values stored row by row
+     */
+    public double[] getData() {
+        return a;
+    }
+
+    /**
+     * Gets all values as two dimensional array. Every call allocates a new
+     * copy of the flat storage, so writes into the returned array are not
+     * reflected by the matrix anymore. Code that changed the matrix through
+     * this array has to use set or getData instead.
+     *
+     * @return copy of all values as array
+     * @deprecated the matrix is no longer backed by a two dimensional array,
+     * use {@link #getData()} to access the values or
+     * {@link #set(int, int, double)} to change them
+     */
+    @Deprecated
     public double[][] getArray() {
+        double[][] A = new double[n][m];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(a, off + i * stride, A[i], 0, m);
+        }
         return A;
     }
 
@@ -259,9 +807,13 @@ public class Matrix {
             return false;
         }
         Matrix B = ((Matrix) o);
+        if (n != B.n || m != B.m) {
+            return false;
+        }
         for (int i = 0; i < n; i++) {
+            int row = off + i * stride, bRow = B.off + i * B.stride;
             for (int j = 0; j < m; j++) {
-                if (A[i][j] != B.A[i][j]) {
+                if (a[row + j] != B.a[bRow + j]) {
                     return false;
                 }
             }
@@ -277,7 +829,13 @@ public class Matrix {
     @Override
     public int hashCode() {
         int hash = 5;
-        hash = 67 * hash + Arrays.deepHashCode(this.A);
+        for (int i = 0; i < n; i++) {
+            int row = off + i * stride;
+            for (int j = 0; j < m; j++) {
+                long bits = Double.doubleToLongBits(a[row + j]);
+                hash = 67 * hash + (int) (bits ^ (bits >>> 32));
+            }
+        }
         return hash;
     }
 
@@ -289,9 +847,10 @@ public class Matrix {
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder();
-        for (double[] mr : A) {
-            for (double mi : mr) {
-                result.append(mi).append(" ");
+        for (int i = 0; i < n; i++) {
+            int row = off + i * stride;
+            for (int j = 0; j < m; j++) {
+                result.append(a[row + j]).append(" ");
             }
             result.append("\n");
         }
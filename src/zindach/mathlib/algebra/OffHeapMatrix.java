@@ -0,0 +1,421 @@
+/*
+* MathLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.mathlib.algebra;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Representation of a real matrix whose values live outside of the Java heap.
+ * Large data sets and weights stored this way are not scanned or moved by the
+ * garbage collector and do not count against the maximum heap size. Values
+ * are stored row by row in a direct buffer in native byte order. The entry
+ * (i, j) is located at index i * m + j.
+ *
+ * Operations stream the rows through a small heap panel and then use the same
+ * kernels as Matrix, so results can be written into normal matrices. The
+ * memory is released by close(). Every operation holds a reference to the
+ * memory while it runs, so closing the matrix while other threads are still
+ * working with it only releases the memory after their operations finished.
+ * Operations started after close() throw an IllegalStateException.
+ *
+ * @author ChriZ98
+ */
+public class OffHeapMatrix implements AutoCloseable {
+
+    private static final int PANEL = 1 << 15;
+    private static final ThreadLocal<double[]> SCRATCH = new ThreadLocal<>();
+    private final int n, m;
+    private final ByteBuffer bytes;
+    private final DoubleBuffer a;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Initializes an empty matrix of the given size.
+     *
+     * @param n number of rows
+     * @param m number of columns
+     */
+    public OffHeapMatrix(int n, int m) {
+        if ((long) n * m > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException("Matrix of size " + n + " x " + m + " is too large");
+        }
+        this.n = n;
+        this.m = m;
+        this.bytes = ByteBuffer.allocateDirect(n * m * 8).order(ByteOrder.nativeOrder());
+        this.a = bytes.asDoubleBuffer();
+    }
+
+    /**
+     * Initializes the matrix with the values of a heap matrix.
+     *
+     * @param A matrix to copy
+     */
+    public OffHeapMatrix(Matrix A) {
+        this(A.getN(), A.getM());
+        copyFrom(A);
+    }
+
+    /**
+     * Initializes the matrix using column vectors.
+     *
+     * @param cols the columns that the matrix should consist of
+     */
+    public OffHeapMatrix(Vector... cols) {
+        this(cols[0].getN(), cols.length);
+        for (int j = 0; j < m; j++) {
+            double[] b = cols[j].getArray();
+            for (int i = 0; i < n; i++) {
+                a.put(i * m + j, b[i]);
+            }
+        }
+    }
+
+    /**
+     * Copies all values of a heap matrix of the same size into this matrix.
+     *
+     * @param A matrix to copy
+     * @return this matrix
+     */
+    public OffHeapMatrix copyFrom(Matrix A) {
+        DoubleBuffer d = acquire();
+        try {
+            double[] src = A.getData();
+            for (int i = 0; i < n; i++) {
+                d.put(src, A.getOffset() + i * A.getStride(), m);
+            }
+        } finally {
+            release();
+        }
+        return this;
+    }
+
+    /**
+     * Copies all values into a heap matrix of the same size.
+     *
+     * @param C destination matrix
+     * @return destination matrix
+     */
+    public Matrix copyInto(Matrix C) {
+        return copyRowsInto(0, C);
+    }
+
+    /**
+     * Copies the whole matrix onto the heap.
+     *
+     * @return heap matrix with the same values
+     */
+    public Matrix toMatrix() {
+        return copyInto(new Matrix(n, m));
+    }
+
+    /**
+     * Copies C.n consecutive rows starting at row i0 into a heap matrix.
+     *
+     * @param i0 first row to copy
+     * @param C destination matrix with m columns
+     * @return destination matrix
+     */
+    public Matrix copyRowsInto(int i0, Matrix C) {
+        DoubleBuffer d = acquire();
+        try {
+            ((Buffer) d).position(i0 * m);
+            double[] dst = C.getData();
+            for (int i = 0; i < C.getN(); i++) {
+                d.get(dst, C.getOffset() + i * C.getStride(), m);
+            }
+        } finally {
+            release();
+        }
+        return C;
+    }
+
+    /**
+     * Copies C.m consecutive columns starting at column j0 into a heap matrix.
+     * If the columns are the samples of a data set this copies one batch.
+     *
+     * @param j0 first column to copy
+     * @param C destination matrix with n rows
+     * @return destination matrix
+     */
+    public Matrix copyColsInto(int j0, Matrix C) {
+        DoubleBuffer d = acquire();
+        try {
+            double[] dst = C.getData();
+            for (int i = 0; i < n; i++) {
+                ((Buffer) d).position(i * m + j0);
+                d.get(dst, C.getOffset() + i * C.getStride(), C.getM());
+            }
+        } finally {
+            release();
+        }
+        return C;
+    }
+
+    /**
+     * Multiplies with a heap matrix and writes the result into a destination
+     * matrix of size n x B.m. The previous values of the destination are
+     * overwritten.
+     *
+     * @param B matrix to multiply with
+     * @param C destination matrix
+     * @return destination matrix
+     */
+    public Matrix mulMatInto(Matrix B, Matrix C) {
+        C.fill(0);
+        double[] panel = scratch();
+        int rows = panel.length / m;
+        DoubleBuffer d = acquire();
+        try {
+            for (int i0 = 0; i0 < n; i0 += rows) {
+                int r = Math.min(rows, n - i0);
+                ((Buffer) d).position(i0 * m);
+                d.get(panel, 0, r * m);
+                Gemm.multiply(r, B.getM(), m, panel, 0, m, 1, B.getData(), B.getOffset(), B.getStride(), 1,
+                        C.getData(), C.getOffset() + i0 * C.getStride(), C.getStride());
+            }
+        } finally {
+            release();
+        }
+        return C;
+    }
+
+    /**
+     * Multiplies with a heap matrix.
+     *
+     * @param B matrix to multiply with
+     * @return resulting heap matrix
+     */
+    public Matrix mulMat(Matrix B) {
+        return mulMatInto(B, new Matrix(n, B.getM()));
+    }
+
+    /**
+     * Multiplies with a column vector and writes the result into a destination
+     * vector of size n.
+     *
+     * @param b vector to multiply with
+     * @param c destination vector
+     * @return destination vector
+     */
+    public Vector mulVecInto(Vector b, Vector c) {
+        double[] panel = scratch();
+        double[] ba = b.getArray();
+        double[] ca = c.getArray();
+        int rows = panel.length / m;
+        DoubleBuffer d = acquire();
+        try {
+            for (int i0 = 0; i0 < n; i0 += rows) {
+                int r = Math.min(rows, n - i0);
+                ((Buffer) d).position(i0 * m);
+                d.get(panel, 0, r * m);
+                for (int i = 0; i < r; i++) {
+                    ca[i0 + i] = Kernels.dot(panel, i * m, ba, 0, m);
+                }
+            }
+        } finally {
+            release();
+        }
+        return c;
+    }
+
+    /**
+     * Adds a scaled heap matrix of the same size to this matrix.
+     *
+     * @param B matrix to add
+     * @param s factor applied on B
+     * @return this matrix
+     */
+    public OffHeapMatrix addMatScaledInPlace(Matrix B, double s) {
+        double[] panel = scratch();
+        double[] b = B.getData();
+        int rows = panel.length / m;
+        DoubleBuffer d = acquire();
+        try {
+            for (int i0 = 0; i0 < n; i0 += rows) {
+                int r = Math.min(rows, n - i0);
+                ((Buffer) d).position(i0 * m);
+                d.get(panel, 0, r * m);
+                for (int i = 0; i < r; i++) {
+                    Kernels.axpy(s, b, B.getOffset() + (i0 + i) * B.getStride(), panel, i * m, m);
+                }
+                ((Buffer) d).position(i0 * m);
+                d.put(panel, 0, r * m);
+            }
+        } finally {
+            release();
+        }
+        return this;
+    }
+
+    /**
+     * Sets every value of the matrix.
+     *
+     * @param value value to set
+     * @return this matrix
+     */
+    public OffHeapMatrix fill(double value) {
+        DoubleBuffer d = acquire();
+        try {
+            for (int i = 0; i < n * m; i++) {
+                d.put(i, value);
+            }
+        } finally {
+            release();
+        }
+        return this;
+    }
+
+    /**
+     * Gets the value at the given position. Every call has to acquire the
+     * memory, so the block operations should be preferred for many values.
+     *
+     * @param i row index
+     * @param j column index
+     * @return value at position
+     */
+    public double get(int i, int j) {
+        DoubleBuffer d = acquire();
+        try {
+            return d.get(i * m + j);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Sets the value at the given position. Every call has to acquire the
+     * memory, so the block operations should be preferred for many values.
+     *
+     * @param i row index
+     * @param j column index
+     * @param value value to set
+     */
+    public void set(int i, int j, double value) {
+        DoubleBuffer d = acquire();
+        try {
+            d.put(i * m + j, value);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return number of rows
+     */
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return number of columns
+     */
+    public int getM() {
+        return m;
+    }
+
+    /**
+     * Checks if the memory of the matrix was already released.
+     *
+     * @return true if close() was called
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Releases the memory of the matrix. If other threads are still working
+     * with the matrix, the memory is released as soon as the last of their
+     * operations finished. Does nothing if the matrix is already closed.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    /**
+     * Takes a reference to the memory that keeps it from being released and
+     * gets an independent view of the values, so that the position of the
+     * shared buffer is never changed. Every call has to be followed by a call
+     * of release once the view is not used anymore.
+     *
+     * @return buffer of the values
+     */
+    private DoubleBuffer acquire() {
+        while (!closed.get()) {
+            int count = references.get();
+            if (count > 0 && references.compareAndSet(count, count + 1)) {
+                return a.duplicate();
+            }
+        }
+        throw new IllegalStateException("Matrix was already closed");
+    }
+
+    /**
+     * Gives back a reference taken by acquire or the reference of the owner
+     * given back by close. The memory is released with the last reference.
+     */
+    private void release() {
+        if (references.decrementAndGet() == 0) {
+            free(bytes);
+        }
+    }
+
+    /**
+     * Gets the heap panel of the current thread that can hold at least one row.
+     *
+     * @return panel array
+     */
+    private double[] scratch() {
+        double[] s = SCRATCH.get();
+        if (s == null || s.length < m) {
+            s = new double[Math.max(PANEL, m)];
+            SCRATCH.set(s);
+        }
+        return s;
+    }
+
+    /**
+     * Releases the native memory of a direct buffer. Java 9 and later offer
+     * Unsafe.invokeCleaner, Java 8 has to call the cleaner of the buffer. If
+     * neither is available the memory is released by the garbage collector.
+     *
+     * @param b buffer to release
+     */
+    private static void free(ByteBuffer b) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            invokeCleaner.invoke(f.get(null), b);
+            return;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // not available before Java 9
+        }
+        try {
+            Method cleanerMethod = b.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(b);
+            cleaner.getClass().getMethod("clean").invoke(cleaner);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // left to the garbage collector
+        }
+    }
+}
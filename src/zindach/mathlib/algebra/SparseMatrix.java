@@ -0,0 +1,228 @@
+/*
+* MathLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.mathlib.algebra;
+
+/**
+ * Representation of a sparse real matrix in compressed sparse column format.
+ * Only values other than zero are stored. The values of column j are located
+ * at the indices colPtr[j] to colPtr[j + 1] - 1 of the values array and the
+ * row of every value is stored at the same index of the row index array.
+ * Because every column holds one sample of a batch, the non zero inputs of a
+ * sample are stored next to each other. Views of consecutive columns share the
+ * arrays and start at the column pointer getColOffset().
+ *
+ * @author ChriZ98
+ */
+public class SparseMatrix {
+
+    private final int n, m, colOff;
+    private final int[] colPtr;
+    private final int[] rowIdx;
+    private final double[] values;
+
+    /**
+     * Initializes the matrix using the compressed arrays. The arrays are used
+     * directly and not copied.
+     *
+     * @param n number of rows
+     * @param m number of columns
+     * @param colPtr start index of every column and total number of values
+     * @param rowIdx row of every value
+     * @param values values other than zero
+     */
+    public SparseMatrix(int n, int m, int[] colPtr, int[] rowIdx, double[] values) {
+        this(n, m, 0, colPtr, rowIdx, values);
+    }
+
+    /**
+     * Initializes the matrix as a window of compressed arrays. The arrays are
+     * used directly and not copied.
+     *
+     * @param n number of rows
+     * @param m number of columns
+     * @param colOff index of the pointer of the first column
+     * @param colPtr start index of every column and total number of values
+     * @param rowIdx row of every value
+     * @param values values other than zero
+     */
+    private SparseMatrix(int n, int m, int colOff, int[] colPtr, int[] rowIdx, double[] values) {
+        this.n = n;
+        this.m = m;
+        this.colOff = colOff;
+        this.colPtr = colPtr;
+        this.rowIdx = rowIdx;
+        this.values = values;
+    }
+
+    /**
+     * Initializes the matrix with all values of a dense matrix that are not
+     * zero.
+     *
+     * @param A dense matrix to compress
+     */
+    public SparseMatrix(Matrix A) {
+        this.n = A.getN();
+        this.m = A.getM();
+        this.colOff = 0;
+        this.colPtr = new int[m + 1];
+        double[] a = A.getData();
+        int off = A.getOffset(), stride = A.getStride();
+        int nnz = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                if (a[off + i * stride + j] != 0) {
+                    nnz++;
+                }
+            }
+        }
+        this.rowIdx = new int[nnz];
+        this.values = new double[nnz];
+        int pos = 0;
+        for (int j = 0; j < m; j++) {
+            colPtr[j] = pos;
+            for (int i = 0; i < n; i++) {
+                double v = a[off + i * stride + j];
+                if (v != 0) {
+                    rowIdx[pos] = i;
+                    values[pos++] = v;
+                }
+            }
+        }
+        colPtr[m] = pos;
+    }
+
+    /**
+     * Initializes the matrix using column vectors.
+     *
+     * @param cols the columns that the matrix should consist of
+     */
+    public SparseMatrix(Vector... cols) {
+        this(new Matrix(cols));
+    }
+
+    /**
+     * Gets a view of consecutive columns. The view shares the arrays with this
+     * matrix, so no value is copied.
+     *
+     * @param j0 first column of the view
+     * @param cols number of columns
+     * @return view of size n x cols
+     */
+    public SparseMatrix viewCols(int j0, int cols) {
+        if (j0 < 0 || cols < 0 || j0 + cols > m) {
+            throw new IndexOutOfBoundsException("View of " + cols + " columns at " + j0
+                    + " exceeds matrix of size " + n + " x " + m);
+        }
+        return new SparseMatrix(n, cols, colOff + j0, colPtr, rowIdx, values);
+    }
+
+    /**
+     * Converts the matrix into a dense matrix.
+     *
+     * @return dense matrix with the same values
+     */
+    public Matrix toMatrix() {
+        Matrix C = new Matrix(n, m);
+        for (int j = 0; j < m; j++) {
+            for (int p = colPtr[colOff + j]; p < colPtr[colOff + j + 1]; p++) {
+                C.set(rowIdx[p], j, values[p]);
+            }
+        }
+        return C;
+    }
+
+    /**
+     * Gets the value at the given position.
+     *
+     * @param i row index
+     * @param j column index
+     * @return value at position
+     */
+    public double get(int i, int j) {
+        for (int p = colPtr[colOff + j]; p < colPtr[colOff + j + 1]; p++) {
+            if (rowIdx[p] == i) {
+                return values[p];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return number of rows
+     */
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return number of columns
+     */
+    public int getM() {
+        return m;
+    }
+
+    /**
+     * Gets the number of stored values.
+     *
+     * @return number of values other than zero
+     */
+    public int getNonZeros() {
+        return colPtr[colOff + m] - colPtr[colOff];
+    }
+
+    /**
+     * Gets the number of values stored in a column.
+     *
+     * @param j column index
+     * @return number of values other than zero
+     */
+    public int getNonZeros(int j) {
+        return colPtr[colOff + j + 1] - colPtr[colOff + j];
+    }
+
+    /**
+     * Gets the start index of every column. The values of column j start at
+     * the index colPtr[getColOffset() + j] and end before the start of the
+     * next column.
+     *
+     * @return column pointers
+     */
+    public int[] getColPointers() {
+        return colPtr;
+    }
+
+    /**
+     * Gets the index of the pointer of the first column. Only views have an
+     * offset other than zero.
+     *
+     * @return offset of the column pointers
+     */
+    public int getColOffset() {
+        return colOff;
+    }
+
+    /**
+     * Gets the row of every stored value.
+     *
+     * @return row indices
+     */
+    public int[] getRowIndices() {
+        return rowIdx;
+    }
+
+    /**
+     * Gets the stored values.
+     *
+     * @return values other than zero
+     */
+    public double[] getValues() {
+        return values;
+    }
+}
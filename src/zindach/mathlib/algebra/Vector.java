@@ -44,13 +44,45 @@ public class Vector {
      * @return resulting vector
      */
     public Vector addVec(Vector b) {
-        Vector c = new Vector(n);
-        for (int i = 0; i < n; i++) {
-            c.a[i] = a[i] + b.a[i];
-        }
+        return addVecInto(b, new Vector(n));
+    }
+
+    /**
+     * Adds another vector and writes the result into a destination vector of
+     * the same size.
+     *
+     * @param b other vector to add
+     * @param c destination vector, may be this vector or b
+     * @return destination vector
+     */
+    public Vector addVecInto(Vector b, Vector c) {
+        Kernels.add(a, 0, b.a, 0, c.a, 0, n);
         return c;
     }
 
+    /**
+     * Adds another vector to this vector.
+     *
+     * @param b other vector to add
+     * @return this vector
+     */
+    public Vector addVecInPlace(Vector b) {
+        return addVecInto(b, this);
+    }
+
+    /**
+     * Adds a multiple of another vector to this vector. Calculates a += s * b
+     * in one pass.
+     *
+     * @param b other vector to add
+     * @param s scalar to multiply the values of b with
+     * @return this vector
+     */
+    public Vector addVecScaledInPlace(Vector b, double s) {
+        Kernels.axpy(s, b.a, 0, a, 0, n);
+        return this;
+    }
+
     /**
      * Subtracts another vector.
      *
@@ -58,13 +90,32 @@ public class Vector {
      * @return resulting vector
      */
     public Vector subVec(Vector b) {
-        Vector c = new Vector(n);
-        for (int i = 0; i < n; i++) {
-            c.a[i] = a[i] - b.a[i];
-        }
+        return subVecInto(b, new Vector(n));
+    }
+
+    /**
+     * Subtracts another vector and writes the result into a destination vector
+     * of the same size.
+     *
+     * @param b vector to be subtracted
+     * @param c destination vector, may be this vector or b
+     * @return destination vector
+     */
+    public Vector subVecInto(Vector b, Vector c) {
+        Kernels.sub(a, 0, b.a, 0, c.a, 0, n);
         return c;
     }
 
+    /**
+     * Subtracts another vector from this vector.
+     *
+     * @param b vector to be subtracted
+     * @return this vector
+     */
+    public Vector subVecInPlace(Vector b) {
+        return subVecInto(b, this);
+    }
+
     /**
      * Takes the hadamard product with another vector. That means multiplying
      * all values in place.
@@ -73,13 +124,32 @@ public class Vector {
      * @return resulting vector
      */
     public Vector hadamardVec(Vector b) {
-        Vector c = new Vector(n);
-        for (int i = 0; i < n; i++) {
-            c.a[i] = a[i] * b.a[i];
-        }
+        return hadamardVecInto(b, new Vector(n));
+    }
+
+    /**
+     * Takes the hadamard product with another vector and writes the result
+     * into a destination vector of the same size.
+     *
+     * @param b other vector
+     * @param c destination vector, may be this vector or b
+     * @return destination vector
+     */
+    public Vector hadamardVecInto(Vector b, Vector c) {
+        Kernels.mul(a, 0, b.a, 0, c.a, 0, n);
         return c;
     }
 
+    /**
+     * Multiplies the values of this vector with the values of another vector.
+     *
+     * @param b other vector
+     * @return this vector
+     */
+    public Vector hadamardVecInPlace(Vector b) {
+        return hadamardVecInto(b, this);
+    }
+
     /**
      * Multiplies with scalar.
      *
@@ -87,10 +157,51 @@ public class Vector {
      * @return
      */
     public Vector mulSca(double s) {
-        Vector c = new Vector(n);
-        for (int i = 0; i < n; i++) {
-            c.a[i] = a[i] * s;
-        }
+        return mulScaInto(s, new Vector(n));
+    }
+
+    /**
+     * Multiplies with scalar and writes the result into a destination vector
+     * of the same size.
+     *
+     * @param s scalar to multiply with
+     * @param c destination vector, may be this vector
+     * @return destination vector
+     */
+    public Vector mulScaInto(double s, Vector c) {
+        Kernels.scale(a, 0, s, c.a, 0, n);
+        return c;
+    }
+
+    /**
+     * Multiplies every value of this vector with a scalar.
+     *
+     * @param s scalar to multiply with
+     * @return this vector
+     */
+    public Vector mulScaInPlace(double s) {
+        return mulScaInto(s, this);
+    }
+
+    /**
+     * Sets every value to the same value.
+     *
+     * @param value value to be set
+     * @return this vector
+     */
+    public Vector fill(double value) {
+        Kernels.fill(a, 0, value, n);
+        return this;
+    }
+
+    /**
+     * Copies all values into a destination vector of the same size.
+     *
+     * @param c destination vector
+     * @return destination vector
+     */
+    public Vector copyInto(Vector c) {
+        System.arraycopy(a, 0, c.a, 0, n);
         return c;
     }
 
@@ -101,11 +212,7 @@ public class Vector {
      * @return resulting scalar
      */
     public double dotVec(Vector b) {
-        double s = 0;
-        for (int i = 0; i < n; i++) {
-            s += a[i] * b.a[i];
-        }
-        return s;
+        return Kernels.dot(a, 0, b.a, 0, n);
     }
 
     /**
@@ -14,7 +14,12 @@ import zindach.mathlib.algebra.Matrix;
 import zindach.mathlib.algebra.Vector;
 import zindach.neuralnetlib.net.NeuralNetwork;
 import zindach.neuralnetlib.options.activation.ActivationFunction;
+import zindach.neuralnetlib.options.activation.IdentityFunction;
+import zindach.neuralnetlib.options.activation.LeakyReLUFunction;
+import zindach.neuralnetlib.options.activation.ReLUFunction;
 import zindach.neuralnetlib.options.activation.SigmoidFunction;
+import zindach.neuralnetlib.options.activation.SoftmaxFunction;
+import zindach.neuralnetlib.options.activation.TanhFunction;
 
 /**
  * A helper class for saving and loading neural networks. Saving the network is
@@ -28,19 +33,22 @@ public class NetworkIO {
      * Loads a neural network from the specified location.
      *
      * @param file filename of a neural network e.g. "network.dat"
-     * @return the loaded neural network with all its weights and biases
+     * @return the loaded neural network with all its weights and biases or
+     * null if the file could not be read
      */
     public static NeuralNetwork loadNetwork(String file) {
         Vector[] biases = null;
         Matrix[] weights = null;
-        ActivationFunction activationFunction = null;
+        ActivationFunction[] activationFunctions = null;
         int size = 0;
         try {
             List<String> lines = Files.readAllLines(Paths.get(file));
-            if (lines.get(0).trim().equals("SIGMOID_ACTIVATION_FUNCTION")) {
-                activationFunction = new SigmoidFunction();
-            }
+            String[] tokens = lines.get(0).trim().split("\\s+");
             size = Integer.parseInt(lines.get(1));
+            activationFunctions = new ActivationFunction[size - 1];
+            for (int i = 0; i < size - 1; i++) {
+                activationFunctions[i] = fromToken(tokens.length == 1 ? tokens[0] : tokens[i]);
+            }
             biases = new Vector[size - 1];
             for (int i = 2; i < size + 1; i++) {
                 String[] components = lines.get(i).trim().split(" ");
@@ -55,14 +63,15 @@ public class NetworkIO {
             ArrayList<Double[]> rows = new ArrayList<>();
             for (int i = size + 1; i < lines.size(); i++) {
                 if (lines.get(i).isEmpty()) {
-                    double[][] matrix = new double[rows.size()][rows.get(0).length];
+                    int cols = rows.get(0).length;
+                    double[] matrix = new double[rows.size() * cols];
                     for (int j = 0; j < rows.size(); j++) {
-                        for (int k = 0; k < rows.get(j).length; k++) {
-                            matrix[j][k] = rows.get(j)[k];
+                        for (int k = 0; k < cols; k++) {
+                            matrix[j * cols + k] = rows.get(j)[k];
                         }
                     }
+                    weights[matrixIndex++] = new Matrix(rows.size(), cols, matrix);
                     rows.clear();
-                    weights[matrixIndex++] = new Matrix(matrix);
                     i++;
                 }
                 if (i >= lines.size() || lines.get(i).isEmpty()) {
@@ -77,8 +86,9 @@ public class NetworkIO {
 
             }
         } catch (IOException ex) {
+            return null;
         }
-        return new NeuralNetwork(weights, biases, size, activationFunction);
+        return new NeuralNetwork(weights, biases, size, activationFunctions);
     }
 
     /**
@@ -89,11 +99,18 @@ public class NetworkIO {
      * @param net the network that is to be saved
      */
     public static void saveNetwork(String file, NeuralNetwork net) {
-        String functions = "";
-        if (net.getActivationFunction() instanceof SigmoidFunction) {
-            functions += "SIGMOID_ACTIVATION_FUNCTION\n";
+        ActivationFunction[] activationFunctions = net.getActivationFunctions();
+        StringBuilder text = new StringBuilder(toToken(activationFunctions[0]));
+        boolean same = true;
+        for (int i = 1; i < activationFunctions.length; i++) {
+            same &= toToken(activationFunctions[i]).equals(toToken(activationFunctions[0]));
+        }
+        if (!same) {
+            for (int i = 1; i < activationFunctions.length; i++) {
+                text.append(" ").append(toToken(activationFunctions[i]));
+            }
         }
-        StringBuilder text = new StringBuilder(functions + net.getSize() + "\n");
+        text.append("\n").append(net.getSize()).append("\n");
         for (Vector bias : net.getBiases()) {
             text.append(bias.toString()).append("\n");
         }
@@ -105,4 +122,50 @@ public class NetworkIO {
         } catch (IOException ex) {
         }
     }
+
+    /**
+     * Gets the token that represents an activation function in saved files.
+     *
+     * @param activationFunction activation function to save
+     * @return token of the function
+     */
+    private static String toToken(ActivationFunction activationFunction) {
+        if (activationFunction instanceof SigmoidFunction) {
+            return "SIGMOID_ACTIVATION_FUNCTION";
+        } else if (activationFunction instanceof ReLUFunction) {
+            return "RELU_ACTIVATION_FUNCTION";
+        } else if (activationFunction instanceof LeakyReLUFunction) {
+            return "LEAKY_RELU_ACTIVATION_FUNCTION:" + ((LeakyReLUFunction) activationFunction).getSlope();
+        } else if (activationFunction instanceof TanhFunction) {
+            return "TANH_ACTIVATION_FUNCTION";
+        } else if (activationFunction instanceof SoftmaxFunction) {
+            return "SOFTMAX_ACTIVATION_FUNCTION";
+        } else if (activationFunction instanceof IdentityFunction) {
+            return "IDENTITY_ACTIVATION_FUNCTION";
+        }
+        throw new IllegalArgumentException("Cannot save " + activationFunction.getClass().getName());
+    }
+
+    /**
+     * Creates the activation function represented by a token.
+     *
+     * @param token token of the function
+     * @return activation function
+     */
+    private static ActivationFunction fromToken(String token) {
+        if (token.equals("SIGMOID_ACTIVATION_FUNCTION")) {
+            return new SigmoidFunction();
+        } else if (token.equals("RELU_ACTIVATION_FUNCTION")) {
+            return new ReLUFunction();
+        } else if (token.startsWith("LEAKY_RELU_ACTIVATION_FUNCTION:")) {
+            return new LeakyReLUFunction(Double.parseDouble(token.substring(token.indexOf(':') + 1)));
+        } else if (token.equals("TANH_ACTIVATION_FUNCTION")) {
+            return new TanhFunction();
+        } else if (token.equals("SOFTMAX_ACTIVATION_FUNCTION")) {
+            return new SoftmaxFunction();
+        } else if (token.equals("IDENTITY_ACTIVATION_FUNCTION")) {
+            return new IdentityFunction();
+        }
+        throw new IllegalArgumentException("Unknown activation function " + token);
+    }
 }
@@ -42,6 +42,24 @@ public class DataUtils {
         return result;
     }
 
+    /**
+     * Divides the columns of the given matrix into parts of specified size.
+     * The parts are views of the matrix, so no value is copied. The last part
+     * could be smaller if the column count is indivisible.
+     *
+     * @param in matrix to be subdivided, one example per column
+     * @param size number of columns of the individual parts
+     * @return parts of the matrix as views
+     */
+    public static Matrix[] subdivide(Matrix in, int size) {
+        Matrix[] result = new Matrix[(int) Math.ceil((double) in.getM() / size)];
+        for (int i = 0; i < result.length; i++) {
+            int pos = i * size;
+            result[i] = in.viewCols(pos, Math.min(size, in.getM() - pos));
+        }
+        return result;
+    }
+
     /**
      * Swaps two elements in vector array.
      *
@@ -0,0 +1,342 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.net;
+
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.Vector;
+import zindach.neuralnetlib.options.activation.ActivationFunction;
+import zindach.neuralnetlib.options.activation.ElementWiseActivationFunction;
+import zindach.neuralnetlib.options.activation.IdentityFunction;
+import zindach.neuralnetlib.options.activation.LeakyReLUFunction;
+import zindach.neuralnetlib.options.activation.SigmoidFunction;
+import zindach.neuralnetlib.options.activation.SoftmaxFunction;
+import zindach.neuralnetlib.options.activation.TanhFunction;
+import zindach.neuralnetlib.options.cost.CostFunction;
+import zindach.neuralnetlib.options.cost.SoftmaxCrossEntropyCostFunction;
+
+/**
+ * Immutable copy of a trained neural network that can only be used for
+ * inference. The weights of every layer are packed column by column into one
+ * float array, so every input adds its contiguous column of weights to the
+ * outputs of the layer. Inputs that are zero are skipped, which pays off for
+ * sparse data like MNIST. The outputs start with the bias and the activation is
+ * applied as soon as all inputs are added. The known activation functions are
+ * evaluated directly, other functions are called through their interface. Every
+ * thread uses its own buffers for the layers, so predictions with the known
+ * functions do not allocate memory and the network can be used by several
+ * threads at once. Created by NeuralNetwork.freeze(). A network trained with
+ * SoftmaxCrossEntropyCostFunction on an IdentityFunction output layer outputs
+ * the values before softmax unless it is frozen with its cost function, which
+ * adds the softmax to the output layer.
+ *
+ * @author ChriZ98
+ */
+public class FrozenNetwork {
+
+    private static final int ELEMENT_WISE = 0;
+    private static final int IDENTITY = 1;
+    private static final int SIGMOID = 2;
+    private static final int TANH = 3;
+    private static final int LEAKY_RELU = 4;
+    private static final int SOFTMAX = 5;
+    private static final int COLUMN = 6;
+
+    private final int[] sizes;
+    private final float[][] weights;
+    private final float[][] biases;
+    private final int[] kinds;
+    private final float[] slopes;
+    private final ActivationFunction[] activationFunctions;
+    private final ThreadLocal<float[][]> buffers;
+
+    /**
+     * Copies the weights, biases and activation functions of a network.
+     *
+     * @param net network to freeze
+     * @param costFunction cost function the network was trained with or null
+     * to use the output layer as it is
+     */
+    FrozenNetwork(NeuralNetwork net, CostFunction costFunction) {
+        int layers = net.getSize() - 1;
+        Matrix[] w = net.getWeights();
+        Vector[] b = net.getBiases();
+        this.sizes = new int[layers + 1];
+        this.weights = new float[layers][];
+        this.biases = new float[layers][];
+        this.kinds = new int[layers];
+        this.slopes = new float[layers];
+        this.activationFunctions = net.getActivationFunctions().clone();
+        sizes[0] = w[0].getM();
+        for (int l = 0; l < layers; l++) {
+            int n = w[l].getN(), m = w[l].getM();
+            sizes[l + 1] = n;
+            weights[l] = new float[n * m];
+            double[] a = w[l].getData();
+            for (int i = 0; i < n; i++) {
+                int row = w[l].getOffset() + i * w[l].getStride();
+                for (int j = 0; j < m; j++) {
+                    weights[l][j * n + i] = (float) a[row + j];
+                }
+            }
+            biases[l] = new float[n];
+            double[] ba = b[l].getArray();
+            for (int i = 0; i < n; i++) {
+                biases[l][i] = (float) ba[i];
+            }
+            ActivationFunction af = activationFunctions[l];
+            if (af instanceof IdentityFunction) {
+                kinds[l] = IDENTITY;
+            } else if (af instanceof SigmoidFunction) {
+                kinds[l] = SIGMOID;
+            } else if (af instanceof TanhFunction) {
+                kinds[l] = TANH;
+            } else if (af instanceof LeakyReLUFunction) {
+                kinds[l] = LEAKY_RELU;
+                slopes[l] = (float) ((LeakyReLUFunction) af).getSlope();
+            } else if (af instanceof SoftmaxFunction) {
+                kinds[l] = SOFTMAX;
+            } else if (af instanceof ElementWiseActivationFunction) {
+                kinds[l] = ELEMENT_WISE;
+            } else {
+                kinds[l] = COLUMN;
+            }
+        }
+        if (costFunction instanceof SoftmaxCrossEntropyCostFunction && kinds[layers - 1] == IDENTITY) {
+            kinds[layers - 1] = SOFTMAX;
+        }
+        this.buffers = ThreadLocal.withInitial(() -> {
+            float[][] result = new float[sizes.length][];
+            for (int l = 0; l < sizes.length; l++) {
+                result[l] = new float[sizes[l]];
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Calculates the output of the network and writes it into a given array.
+     *
+     * @param in input values
+     * @param out array for the output values
+     * @return out
+     */
+    public float[] predict(float[] in, float[] out) {
+        float[] result = calculate(in);
+        System.arraycopy(result, 0, out, 0, result.length);
+        return out;
+    }
+
+    /**
+     * Calculates the output of the network and writes it into a given array.
+     *
+     * @param in input values
+     * @param out array for the output values
+     * @return out
+     */
+    public float[] predict(double[] in, float[] out) {
+        return predict(toInput(in), out);
+    }
+
+    /**
+     * Calculates the output of the network. For a softmax output layer, or an
+     * identity output layer frozen with SoftmaxCrossEntropyCostFunction, the
+     * output holds the probabilities of the classes.
+     *
+     * @param in input values
+     * @return newly allocated output values
+     */
+    public float[] predict(float[] in) {
+        return predict(in, new float[getOutputs()]);
+    }
+
+    /**
+     * Calculates the output of the network. For a softmax output layer, or an
+     * identity output layer frozen with SoftmaxCrossEntropyCostFunction, the
+     * output holds the probabilities of the classes.
+     *
+     * @param in input values
+     * @return newly allocated output values
+     */
+    public float[] predict(double[] in) {
+        return predict(in, new float[getOutputs()]);
+    }
+
+    /**
+     * Calculates the class of the input, which is the index of the largest
+     * output. Does not allocate memory.
+     *
+     * @param in input values
+     * @return index of the largest output
+     */
+    public int classify(float[] in) {
+        float[] result = calculate(in);
+        int max = 0;
+        for (int i = 1; i < result.length; i++) {
+            if (result[i] > result[max]) {
+                max = i;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Calculates the class of the input, which is the index of the largest
+     * output. Does not allocate memory.
+     *
+     * @param in input values
+     * @return index of the largest output
+     */
+    public int classify(double[] in) {
+        return classify(toInput(in));
+    }
+
+    /**
+     * Converts the input into the input buffer of the calling thread.
+     *
+     * @param in input values
+     * @return input buffer
+     */
+    private float[] toInput(double[] in) {
+        float[] x = buffers.get()[0];
+        checkInput(in.length);
+        for (int i = 0; i < x.length; i++) {
+            x[i] = (float) in[i];
+        }
+        return x;
+    }
+
+    /**
+     * Checks the size of an input.
+     *
+     * @param length number of input values
+     */
+    private void checkInput(int length) {
+        if (length != sizes[0]) {
+            throw new IllegalArgumentException("Input of size " + length + " does not match network input of size " + sizes[0]);
+        }
+    }
+
+    /**
+     * Feedforwards the input through all layers using the buffers of the
+     * calling thread.
+     *
+     * @param in input values
+     * @return output buffer of the calling thread
+     */
+    private float[] calculate(float[] in) {
+        checkInput(in.length);
+        float[][] buf = buffers.get();
+        float[] x = in;
+        for (int l = 0; l < weights.length; l++) {
+            float[] y = buf[l + 1];
+            layer(l, x, y);
+            x = y;
+        }
+        return x;
+    }
+
+    /**
+     * Calculates one layer. The outputs are initialized with the bias, every
+     * input other than zero adds its column of weights and the activation is
+     * applied at the end.
+     *
+     * @param l index of the layer
+     * @param x input of the layer
+     * @param y output of the layer
+     */
+    private void layer(int l, float[] x, float[] y) {
+        float[] w = weights[l];
+        int n = y.length;
+        System.arraycopy(biases[l], 0, y, 0, n);
+        for (int j = 0; j < x.length; j++) {
+            float xj = x[j];
+            if (xj != 0) {
+                int col = j * n;
+                for (int i = 0; i < n; i++) {
+                    y[i] += w[col + i] * xj;
+                }
+            }
+        }
+        float slope = slopes[l];
+        switch (kinds[l]) {
+            case IDENTITY:
+                break;
+            case SIGMOID:
+                for (int i = 0; i < n; i++) {
+                    y[i] = (float) (1 / (1 + Math.exp(-y[i])));
+                }
+                break;
+            case TANH:
+                for (int i = 0; i < n; i++) {
+                    y[i] = (float) Math.tanh(y[i]);
+                }
+                break;
+            case LEAKY_RELU:
+                for (int i = 0; i < n; i++) {
+                    y[i] = y[i] > 0 ? y[i] : slope * y[i];
+                }
+                break;
+            case SOFTMAX:
+                softmax(y);
+                break;
+            case ELEMENT_WISE:
+                ElementWiseActivationFunction f = (ElementWiseActivationFunction) activationFunctions[l];
+                for (int i = 0; i < n; i++) {
+                    y[i] = (float) f.calculate(y[i]);
+                }
+                break;
+            default:
+                double[] v = new double[n];
+                for (int i = 0; i < n; i++) {
+                    v[i] = y[i];
+                }
+                double[] a = activationFunctions[l].calculateVec(new Vector(v)).getArray();
+                for (int i = 0; i < n; i++) {
+                    y[i] = (float) a[i];
+                }
+        }
+    }
+
+    /**
+     * Replaces the values by their softmax. The maximum is subtracted before
+     * exponentiation so that large values do not overflow.
+     *
+     * @param y values of the layer
+     */
+    private static void softmax(float[] y) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (float v : y) {
+            max = Math.max(max, v);
+        }
+        float sum = 0;
+        for (int i = 0; i < y.length; i++) {
+            y[i] = (float) Math.exp(y[i] - max);
+            sum += y[i];
+        }
+        float inv = 1 / sum;
+        for (int i = 0; i < y.length; i++) {
+            y[i] *= inv;
+        }
+    }
+
+    /**
+     * Gets the number of inputs.
+     *
+     * @return size of the input layer
+     */
+    public int getInputs() {
+        return sizes[0];
+    }
+
+    /**
+     * Gets the number of outputs.
+     *
+     * @return size of the output layer
+     */
+    public int getOutputs() {
+        return sizes[sizes.length - 1];
+    }
+}
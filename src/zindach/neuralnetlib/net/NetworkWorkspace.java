@@ -0,0 +1,216 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.net;
+
+import java.util.function.DoubleUnaryOperator;
+import zindach.mathlib.algebra.Gemm;
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.SparseMatrix;
+import zindach.mathlib.algebra.Vector;
+
+/**
+ * Holds all intermediate results of a neural network for batches up to a
+ * maximum size. The values, activations and errors of every layer as well as
+ * the gradients of the weights and biases are allocated once and reused for
+ * every batch, so training does not allocate any memory after the first
+ * batch. Smaller batches use views of the first columns. The epilogues that
+ * add the biases and apply the activation functions are kept as well. A
+ * workspace must only be used by one thread at a time.
+ *
+ * @author ChriZ98
+ */
+public class NetworkWorkspace {
+
+    private final int maxBatchSize;
+    private final Matrix[] values;
+    private final Matrix[] activations;
+    private final Matrix[] errors;
+    private final Matrix[] weightErrors;
+    private final Vector[] biasErrors;
+    private final Matrix[] valueViews;
+    private final Matrix[] activationViews;
+    private final Matrix[] errorViews;
+    private final Gemm.Epilogue[] epilogues;
+    private SparseMatrix sparseInput;
+    private int batchSize = -1;
+
+    /**
+     * Initializes the workspace for a network and a maximum batch size.
+     *
+     * @param net network the workspace is used for
+     * @param maxBatchSize maximum number of columns of an input batch
+     */
+    public NetworkWorkspace(NeuralNetwork net, int maxBatchSize) {
+        int layers = net.getSize() - 1;
+        Matrix[] weights = net.getWeights();
+        this.maxBatchSize = maxBatchSize;
+        this.values = new Matrix[layers];
+        this.activations = new Matrix[layers + 1];
+        this.errors = new Matrix[layers];
+        this.weightErrors = new Matrix[layers];
+        this.biasErrors = new Vector[layers];
+        this.valueViews = new Matrix[layers];
+        this.activationViews = new Matrix[layers + 1];
+        this.errorViews = new Matrix[layers];
+        this.epilogues = new Gemm.Epilogue[layers];
+        for (int i = 0; i < layers; i++) {
+            int n = weights[i].getN();
+            values[i] = new Matrix(n, maxBatchSize);
+            activations[i + 1] = new Matrix(n, maxBatchSize);
+            errors[i] = new Matrix(n, maxBatchSize);
+            weightErrors[i] = new Matrix(n, weights[i].getM());
+            biasErrors[i] = new Vector(n);
+        }
+    }
+
+    /**
+     * Prepares the views of all buffers for the given batch size. The views
+     * are only created again if the batch size changes.
+     *
+     * @param cols number of columns of the input batch
+     */
+    void prepare(int cols) {
+        if (cols > maxBatchSize) {
+            throw new IllegalArgumentException("Batch of size " + cols + " exceeds workspace of size " + maxBatchSize);
+        }
+        if (cols == batchSize) {
+            return;
+        }
+        batchSize = cols;
+        for (int i = 0; i < values.length; i++) {
+            valueViews[i] = values[i].viewCols(0, cols);
+            activationViews[i + 1] = activations[i + 1].viewCols(0, cols);
+            errorViews[i] = errors[i].viewCols(0, cols);
+        }
+    }
+
+    /**
+     * Sets the dense input of the current batch.
+     *
+     * @param in input batch
+     */
+    void setInput(Matrix in) {
+        activationViews[0] = in;
+        sparseInput = null;
+    }
+
+    /**
+     * Sets the sparse input of the current batch.
+     *
+     * @param in input batch
+     */
+    void setInput(SparseMatrix in) {
+        activationViews[0] = null;
+        sparseInput = in;
+    }
+
+    /**
+     * Gets the sparse input of the current batch.
+     *
+     * @return sparse input or null if the input is dense
+     */
+    SparseMatrix getSparseInput() {
+        return sparseInput;
+    }
+
+    /**
+     * Gets the values of a layer without activation applied.
+     *
+     * @param i index of the weight layer
+     * @return values of the current batch
+     */
+    Matrix getValues(int i) {
+        return valueViews[i];
+    }
+
+    /**
+     * Gets the activations of a layer. Index 0 is the dense input.
+     *
+     * @param i index of the neuron layer
+     * @return activations of the current batch
+     */
+    Matrix getActivations(int i) {
+        return activationViews[i];
+    }
+
+    /**
+     * Gets the error of a layer.
+     *
+     * @param i index of the weight layer
+     * @return error of the current batch
+     */
+    Matrix getErrors(int i) {
+        return errorViews[i];
+    }
+
+    /**
+     * Gets the epilogue of a layer that adds the biases to the values and
+     * writes the activations. The epilogue is only created again if the
+     * biases or the function changed.
+     *
+     * @param i index of the weight layer
+     * @param bias biases of the layer
+     * @param f activation function or null to only add the biases
+     * @return epilogue of the current batch
+     */
+    Gemm.Epilogue getEpilogue(int i, Vector bias, DoubleUnaryOperator f) {
+        Matrix F = f == null ? null : activationViews[i + 1];
+        Gemm.Epilogue e = epilogues[i];
+        if (e == null || !e.isFor(bias, f, F)) {
+            e = new Gemm.Epilogue(bias, f, F);
+            epilogues[i] = e;
+        }
+        return e;
+    }
+
+    /**
+     * Gets the output of the last feedforward.
+     *
+     * @return activations of the output layer
+     */
+    public Matrix getOutput() {
+        return activationViews[activationViews.length - 1];
+    }
+
+    /**
+     * Gets the values of the output layer of the last feedforward without
+     * activation applied.
+     *
+     * @return values of the output layer
+     */
+    public Matrix getOutputValues() {
+        return valueViews[valueViews.length - 1];
+    }
+
+    /**
+     * Gets the gradients of the weights calculated by the last
+     * backpropagation.
+     *
+     * @return weight errors of every layer
+     */
+    public Matrix[] getWeightErrors() {
+        return weightErrors;
+    }
+
+    /**
+     * Gets the gradients of the biases calculated by the last
+     * backpropagation.
+     *
+     * @return bias errors of every layer
+     */
+    public Vector[] getBiasErrors() {
+        return biasErrors;
+    }
+
+    /**
+     * Gets the maximum batch size.
+     *
+     * @return maximum number of columns of an input batch
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+}
@@ -5,9 +5,15 @@
  */
 package zindach.neuralnetlib.net;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ToDoubleBiFunction;
 import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.SparseMatrix;
 import zindach.mathlib.algebra.Vector;
 import zindach.neuralnetlib.options.activation.ActivationFunction;
+import zindach.neuralnetlib.options.activation.ElementWiseActivationFunction;
 import zindach.neuralnetlib.options.activation.SigmoidFunction;
 import zindach.neuralnetlib.options.cost.CostFunction;
 import zindach.neuralnetlib.options.initialization.NormalizedInitialization;
@@ -24,12 +30,17 @@ import zindach.neuralnetlib.options.initialization.WeightInitialization;
  */
 public class NeuralNetwork {
 
+    /**
+     * Number of columns fed forward at once when a whole data set is
+     * evaluated.
+     */
+    public static final int EVALUATION_CHUNK_SIZE = 1024;
+
     private final int size;
     private Vector[] biases;
     private Matrix[] weights;
-    private final Matrix[] lastValues;
-    private final Matrix[] lastActivations;
-    private final ActivationFunction activationFunction;
+    private final ActivationFunction[] activationFunctions;
+    private final ThreadLocal<NetworkWorkspace> predictWorkspaces = new ThreadLocal<>();
 
     /**
      * Initializes the neural network based on the following options. This
@@ -41,12 +52,46 @@ public class NeuralNetwork {
      * @param activationFunction activation function to apply to ever neuron
      */
     public NeuralNetwork(Matrix[] weights, Vector[] biases, int size, ActivationFunction activationFunction) {
+        this(weights, biases, size, repeat(activationFunction, size - 1));
+    }
+
+    /**
+     * Initializes the neural network based on the following options. This
+     * constructor should only be used by the NetworkIO class
+     *
+     * @param weights weights of the network
+     * @param biases biases of the network
+     * @param size number of layers in the network
+     * @param activationFunctions activation function of every layer except the
+     * input layer
+     */
+    public NeuralNetwork(Matrix[] weights, Vector[] biases, int size, ActivationFunction[] activationFunctions) {
+        if (activationFunctions.length != size - 1) {
+            throw new IllegalArgumentException("Expected " + (size - 1) + " activation functions but got " + activationFunctions.length);
+        }
+        for (int i = 0; i < size - 2; i++) {
+            if (!(activationFunctions[i] instanceof ElementWiseActivationFunction)) {
+                throw new IllegalArgumentException("Only the output layer can use " + activationFunctions[i].getClass().getSimpleName());
+            }
+        }
         this.size = size;
         this.biases = biases;
         this.weights = weights;
-        this.lastValues = new Matrix[size - 1];
-        this.lastActivations = new Matrix[size];
-        this.activationFunction = activationFunction;
+        this.activationFunctions = activationFunctions;
+    }
+
+    /**
+     * Initializes the neural network with one activation function per layer.
+     *
+     * @param activationFunctions activation function of every layer except the
+     * input layer, e.g. ReLU for the hidden layers and softmax for the output
+     * layer
+     * @param weightInitialization defines a method to initialize the weight and
+     * biases with
+     * @param sizes an array of layer sizes
+     */
+    public NeuralNetwork(ActivationFunction[] activationFunctions, WeightInitialization weightInitialization, int... sizes) {
+        this(weightInitialization.initWeights(sizes), weightInitialization.initBiases(sizes), sizes.length, activationFunctions);
     }
 
     /**
@@ -74,23 +119,208 @@ public class NeuralNetwork {
 
     /**
      * Feedforwards the input values organized in a matrix through the network.
-     * The neuron values and activations are saved for later use.
+     * A new workspace is allocated for the intermediate results. Every layer
+     * is calculated in one fused pass that multiplies the weights, adds the
+     * biases and applies the activation function.
      *
      * @param in input values organized in a matrix out of input columns
      * @return result of the output layer. Every input column has its
      * corresponding output column in the returned matrix
      */
     public Matrix feedforward(Matrix in) {
-        lastActivations[0] = in;
+        return feedforward(in, new NetworkWorkspace(this, in.getM()));
+    }
+
+    /**
+     * Feedforwards the input values organized in a matrix through the network.
+     * The neuron values and activations are written into the workspace for
+     * later use.
+     *
+     * @param in input values organized in a matrix out of input columns
+     * @param ws workspace for the intermediate results
+     * @return result of the output layer as view of the workspace. Every input
+     * column has its corresponding output column in the returned matrix
+     */
+    public Matrix feedforward(Matrix in, NetworkWorkspace ws) {
+        ws.prepare(in.getM());
+        ws.setInput(in);
+        return feedforward(0, ws);
+    }
+
+    /**
+     * Feedforwards sparse input values through the network. Works like the
+     * dense version but the first layer only visits inputs other than zero.
+     *
+     * @param in input values organized in a sparse matrix out of input columns
+     * @param ws workspace for the intermediate results
+     * @return result of the output layer as view of the workspace. Every input
+     * column has its corresponding output column in the returned matrix
+     */
+    public Matrix feedforward(SparseMatrix in, NetworkWorkspace ws) {
+        ws.prepare(in.getM());
+        ws.setInput(in);
+        ElementWiseActivationFunction f = elementWise(0);
+        weights[0].mulMatAddVecInto(in, biases[0], ws.getValues(0), f, f == null ? null : ws.getActivations(1));
+        if (f == null) {
+            activationFunctions[0].calculateMatInto(ws.getValues(0), ws.getActivations(1));
+        }
+        return feedforward(1, ws);
+    }
+
+    /**
+     * Feedforwards the activations of a layer through the remaining layers.
+     *
+     * @param first index of the first layer to calculate
+     * @param ws workspace for the intermediate results
+     * @return result of the output layer
+     */
+    private Matrix feedforward(int first, NetworkWorkspace ws) {
+        for (int i = first; i < size - 1; i++) {
+            ElementWiseActivationFunction f = elementWise(i);
+            weights[i].mulMatInto(ws.getActivations(i), ws.getValues(i), ws.getEpilogue(i, biases[i], f));
+            if (f == null) {
+                activationFunctions[i].calculateMatInto(ws.getValues(i), ws.getActivations(i + 1));
+            }
+        }
+        return ws.getOutput();
+    }
+
+    /**
+     * Calculates the output of the network for one input vector. Every thread
+     * uses its own workspace, so the network can be used by several threads at
+     * once as long as the weights are not changed.
+     *
+     * @param in input vector
+     * @return newly allocated output vector
+     */
+    public Vector predict(Vector in) {
+        Matrix out = feedforward(new Matrix(in.getN(), 1, in.getArray()), predictWorkspace(1));
+        return out.getCols()[0];
+    }
+
+    /**
+     * Calculates the output of the network for input values organized in a
+     * matrix. The input is fed forward in chunks of EVALUATION_CHUNK_SIZE
+     * columns through a workspace of the calling thread, so the network can be
+     * used by several threads at once as long as the weights are not changed.
+     *
+     * @param in input values organized in a matrix out of input columns
+     * @return newly allocated matrix with one output column for every input
+     * column
+     */
+    public Matrix predict(Matrix in) {
+        Matrix result = new Matrix(weights[size - 2].getN(), in.getM());
+        NetworkWorkspace ws = predictWorkspace(Math.min(in.getM(), EVALUATION_CHUNK_SIZE));
+        for (int j = 0; j < in.getM(); j += EVALUATION_CHUNK_SIZE) {
+            int cols = Math.min(EVALUATION_CHUNK_SIZE, in.getM() - j);
+            feedforward(in.viewCols(j, cols), ws).copyInto(result.viewCols(j, cols));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a copy of the network with copied weights and biases. Changes of
+     * this network do not affect the copy. The activation functions are
+     * shared.
+     *
+     * @return copied network
+     */
+    public NeuralNetwork copy() {
+        Matrix[] w = new Matrix[size - 1];
+        Vector[] b = new Vector[size - 1];
         for (int i = 0; i < size - 1; i++) {
-            lastValues[i] = weights[i].mulMat(lastActivations[i]).addVec(biases[i]);
-            lastActivations[i + 1] = activationFunction.calculateMat(lastValues[i]);
+            w[i] = weights[i].copyInto(new Matrix(weights[i].getN(), weights[i].getM()));
+            b[i] = biases[i].copyInto(new Vector(biases[i].getN()));
         }
-        return lastActivations[size - 1];
+        return new NeuralNetwork(w, b, size, activationFunctions.clone());
+    }
+
+    /**
+     * Creates an immutable copy of the network for inference only. The
+     * weights are packed into float arrays and changes of this network do not
+     * affect the copy. The outputs are the activations of the output layer,
+     * so an IdentityFunction output layer returns the values before softmax.
+     *
+     * @return frozen network
+     */
+    public FrozenNetwork freeze() {
+        return new FrozenNetwork(this, null);
+    }
+
+    /**
+     * Creates an immutable copy of the network for inference only. If the
+     * cost function applies softmax itself, like
+     * SoftmaxCrossEntropyCostFunction, and the output layer uses the
+     * IdentityFunction, the copy applies softmax to the output, so it returns
+     * the probabilities of the classes like the network was trained for.
+     *
+     * @param costFunction cost function the network was trained with
+     * @return frozen network
+     */
+    public FrozenNetwork freeze(CostFunction costFunction) {
+        return new FrozenNetwork(this, costFunction);
+    }
+
+    /**
+     * Gets the workspace of the calling thread used for prediction. The
+     * workspace is replaced if it is too small.
+     *
+     * @param cols number of columns needed
+     * @return workspace of the calling thread
+     */
+    private NetworkWorkspace predictWorkspace(int cols) {
+        NetworkWorkspace ws = predictWorkspaces.get();
+        if (ws == null || ws.getMaxBatchSize() < cols) {
+            ws = new NetworkWorkspace(this, cols);
+            predictWorkspaces.set(ws);
+        }
+        return ws;
+    }
+
+    /**
+     * Feedforwards a whole data set in chunks of EVALUATION_CHUNK_SIZE columns
+     * and sums up a value calculated for every chunk. The chunks are
+     * calculated in parallel on the common fork join pool.
+     *
+     * @param in input data, every column holds one example
+     * @param out output data belonging to the input columns
+     * @param f function calculating the value of one chunk from the workspace
+     * after feedforward and the output columns of the chunk
+     * @return sum of the values of all chunks
+     */
+    public double sumChunks(Matrix in, Matrix out, ToDoubleBiFunction<NetworkWorkspace, Matrix> f) {
+        return sumChunks(in, out, f, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Feedforwards a whole data set in chunks of EVALUATION_CHUNK_SIZE columns
+     * and sums up a value calculated for every chunk. The chunks are
+     * calculated in parallel on the given pool. Every task reuses one
+     * workspace for all of its chunks, so the memory needed does not depend
+     * on the size of the data set.
+     *
+     * @param in input data, every column holds one example
+     * @param out output data belonging to the input columns
+     * @param f function calculating the value of one chunk from the workspace
+     * after feedforward and the output columns of the chunk
+     * @param pool pool the chunks are calculated on
+     * @return sum of the values of all chunks
+     */
+    public double sumChunks(Matrix in, Matrix out, ToDoubleBiFunction<NetworkWorkspace, Matrix> f, ForkJoinPool pool) {
+        Matrix[] chunksIn = DataUtils.subdivide(in, EVALUATION_CHUNK_SIZE);
+        Matrix[] chunksOut = DataUtils.subdivide(out, EVALUATION_CHUNK_SIZE);
+        if (chunksIn.length == 0) {
+            return 0;
+        }
+        int grain = Math.max(1, chunksIn.length / (4 * pool.getParallelism()));
+        return pool.invoke(new ChunkTask(chunksIn, chunksOut, f, 0, chunksIn.length, grain));
     }
 
     /**
      * Backpropagates an error through the network and updates error matrices.
+     * The error values are written into the given matrices and vectors.
+     * Missing entries are allocated. Prefer the version with a workspace for
+     * repeated calls.
      *
      * @param trainingIn input data
      * @param trainingOut output data with correct values
@@ -101,12 +331,70 @@ public class NeuralNetwork {
      * @param costFunction cost function being used to calculate error
      */
     public void backpropagate(Matrix trainingIn, Matrix trainingOut, Matrix[] weightErrors, Vector[] biasErrors, CostFunction costFunction) {
-        Matrix error = costFunction.calculateError(feedforward(trainingIn), trainingOut, lastValues[size - 2], activationFunction);
+        NetworkWorkspace ws = new NetworkWorkspace(this, trainingIn.getM());
+        backpropagate(trainingIn, trainingOut, ws, costFunction);
+        for (int i = 0; i < size - 1; i++) {
+            if (weightErrors[i] == null) {
+                weightErrors[i] = ws.getWeightErrors()[i];
+            } else {
+                ws.getWeightErrors()[i].copyInto(weightErrors[i]);
+            }
+            if (biasErrors[i] == null) {
+                biasErrors[i] = ws.getBiasErrors()[i];
+            } else {
+                ws.getBiasErrors()[i].copyInto(biasErrors[i]);
+            }
+        }
+    }
+
+    /**
+     * Backpropagates an error through the network. The gradients of all
+     * weights and biases are written into the workspace.
+     *
+     * @param trainingIn input data
+     * @param trainingOut output data with correct values
+     * @param ws workspace for the intermediate results and gradients
+     * @param costFunction cost function being used to calculate error
+     */
+    public void backpropagate(Matrix trainingIn, Matrix trainingOut, NetworkWorkspace ws, CostFunction costFunction) {
+        feedforward(trainingIn, ws);
+        backpropagateOutput(trainingOut, ws, costFunction);
+    }
+
+    /**
+     * Backpropagates an error through the network for sparse input data. The
+     * errors of the first layer weights only visit inputs other than zero.
+     *
+     * @param trainingIn sparse input data
+     * @param trainingOut output data with correct values
+     * @param ws workspace for the intermediate results and gradients
+     * @param costFunction cost function being used to calculate error
+     */
+    public void backpropagate(SparseMatrix trainingIn, Matrix trainingOut, NetworkWorkspace ws, CostFunction costFunction) {
+        feedforward(trainingIn, ws);
+        backpropagateOutput(trainingOut, ws, costFunction);
+    }
+
+    /**
+     * Backpropagates the error of the last feedforward through the network.
+     *
+     * @param trainingOut output data with correct values
+     * @param ws workspace of the last feedforward
+     * @param costFunction cost function being used to calculate error
+     */
+    private void backpropagateOutput(Matrix trainingOut, NetworkWorkspace ws, CostFunction costFunction) {
+        Matrix[] weightErrors = ws.getWeightErrors();
+        Vector[] biasErrors = ws.getBiasErrors();
+        Matrix error = costFunction.calculateErrorInto(ws.getOutput(), trainingOut, ws.getValues(size - 2), activationFunctions[size - 2], ws.getErrors(size - 2));
         for (int i = size - 2; i >= 0; i--) {
-            weightErrors[i] = error.mulMat(lastActivations[i].transpose());
-            biasErrors[i] = error.sumCols();
+            if (i == 0 && ws.getSparseInput() != null) {
+                error.mulTransposeBInto(ws.getSparseInput(), weightErrors[i]);
+            } else {
+                error.mulTransposeBInto(ws.getActivations(i), weightErrors[i]);
+            }
+            error.sumColsInto(biasErrors[i]);
             if (i > 0) {
-                error = weights[i].transpose().mulMat(error).hadamardMat(activationFunction.calculateDerivMat(lastValues[i - 1]));
+                error = activationFunctions[i - 1].mulDerivInPlace(ws.getValues(i - 1), ws.getActivations(i), weights[i].mulTransposeAInto(error, ws.getErrors(i - 1)));
             }
         }
     }
@@ -139,12 +427,48 @@ public class NeuralNetwork {
     }
 
     /**
-     * Gets activation function.
+     * Gets activation function of the output layer.
      *
      * @return activation function
      */
     public ActivationFunction getActivationFunction() {
-        return activationFunction;
+        return activationFunctions[size - 2];
+    }
+
+    /**
+     * Gets the activation functions of all layers except the input layer.
+     *
+     * @return activation functions
+     */
+    public ActivationFunction[] getActivationFunctions() {
+        return activationFunctions;
+    }
+
+    /**
+     * Gets the activation function of a layer if it can be applied to every
+     * value on its own while the values of the layer are calculated.
+     *
+     * @param i index of the weight layer
+     * @return element wise activation function or null if it depends on
+     * whole columns
+     */
+    private ElementWiseActivationFunction elementWise(int i) {
+        ActivationFunction f = activationFunctions[i];
+        return f instanceof ElementWiseActivationFunction ? (ElementWiseActivationFunction) f : null;
+    }
+
+    /**
+     * Creates an array that holds the same activation function for every
+     * layer.
+     *
+     * @param activationFunction activation function to repeat
+     * @param layers number of layers
+     * @return activation functions
+     */
+    private static ActivationFunction[] repeat(ActivationFunction activationFunction, int layers) {
+        ActivationFunction[] result = new ActivationFunction[layers];
+        Arrays.fill(result, activationFunction);
+        return result;
     }
 
     /**
@@ -164,4 +488,46 @@ public class NeuralNetwork {
     public void setBiases(Vector[] biases) {
         this.biases = biases;
     }
+
+    /**
+     * Task that feedforwards a range of chunks and sums up their values.
+     * Ranges larger than the grain are split in halves.
+     */
+    private class ChunkTask extends RecursiveTask<Double> {
+
+        private static final long serialVersionUID = 1L;
+        private final Matrix[] chunksIn;
+        private final Matrix[] chunksOut;
+        private final ToDoubleBiFunction<NetworkWorkspace, Matrix> f;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        ChunkTask(Matrix[] chunksIn, Matrix[] chunksOut, ToDoubleBiFunction<NetworkWorkspace, Matrix> f, int from, int to, int grain) {
+            this.chunksIn = chunksIn;
+            this.chunksOut = chunksOut;
+            this.f = f;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from > grain) {
+                int mid = (from + to) >>> 1;
+                ChunkTask left = new ChunkTask(chunksIn, chunksOut, f, from, mid, grain);
+                left.fork();
+                double right = new ChunkTask(chunksIn, chunksOut, f, mid, to, grain).compute();
+                return left.join() + right;
+            }
+            NetworkWorkspace ws = new NetworkWorkspace(NeuralNetwork.this, chunksIn[from].getM());
+            double sum = 0;
+            for (int i = from; i < to; i++) {
+                feedforward(chunksIn[i], ws);
+                sum += f.applyAsDouble(ws, chunksOut[i]);
+            }
+            return sum;
+        }
+    }
 }
@@ -10,7 +10,10 @@ import zindach.mathlib.algebra.Vector;
 
 /**
  * Abstract superclass for activation functions that are being applied to
- * neurons.
+ * neurons. Every function works on whole columns, so functions like softmax
+ * that depend on all values of a column can be used for the output layer.
+ * Functions that are applied to every value on its own extend
+ * ElementWiseActivationFunction and can be used in every layer.
  *
  * @author ChriZ98
  */
@@ -22,7 +25,11 @@ public abstract class ActivationFunction {
      * @param v vector with data to calculate
      * @return calculated values as vector
      */
-    public abstract Vector calculateVec(Vector v);
+    public Vector calculateVec(Vector v) {
+        Matrix C = new Matrix(v.getN(), 1);
+        calculateMatInto(new Matrix(v.getN(), 1, v.getArray()), C);
+        return new Vector(C.getData());
+    }
 
     /**
      * Calculates result for every entry of matrix.
@@ -30,7 +37,19 @@ public abstract class ActivationFunction {
      * @param M matrix with data to calculate
      * @return calculated values as matrix
      */
-    public abstract Matrix calculateMat(Matrix M);
+    public Matrix calculateMat(Matrix M) {
+        return calculateMatInto(M, new Matrix(M.getN(), M.getM()));
+    }
+
+    /**
+     * Calculates result for every entry of matrix and writes it into a
+     * destination matrix of the same size.
+     *
+     * @param M matrix with data to calculate
+     * @param C destination matrix, may be M
+     * @return destination matrix
+     */
+    public abstract Matrix calculateMatInto(Matrix M, Matrix C);
 
     /**
      * Calculates derived activation for every entry of vector.
@@ -38,7 +57,9 @@ public abstract class ActivationFunction {
      * @param v vector with data to calculate
      * @return calculated values as vector
      */
-    public abstract Vector calculateDerivVec(Vector v);
+    public Vector calculateDerivVec(Vector v) {
+        return new Vector(calculateDerivMat(new Matrix(v.getN(), 1, v.getArray())).getData());
+    }
 
     /**
      * Calculates derived activation for every entry of matrix.
@@ -47,4 +68,17 @@ public abstract class ActivationFunction {
      * @return calculated values as matrix
      */
     public abstract Matrix calculateDerivMat(Matrix M);
+
+    /**
+     * Multiplies every entry of a matrix with the derived activation of the
+     * corresponding value. Propagates an error through the activation without
+     * creating the matrix of derived activations. The stored activations are
+     * used so that the function does not need to be evaluated again.
+     *
+     * @param values values of the layer without activation applied
+     * @param activations activations of the layer
+     * @param C matrix to multiply, usually the error of the layer
+     * @return multiplied matrix
+     */
+    public abstract Matrix mulDerivInPlace(Matrix values, Matrix activations, Matrix C);
 }
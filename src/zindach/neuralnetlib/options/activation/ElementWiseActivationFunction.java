@@ -0,0 +1,145 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.activation;
+
+import java.util.function.DoubleUnaryOperator;
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.Vector;
+
+/**
+ * Abstract superclass for activation functions that are applied to every
+ * value on its own. They can also be used as a function of a single value,
+ * for example as the epilogue of a fused layer calculation. The vector and
+ * matrix methods apply the single value methods to every entry.
+ *
+ * @author ChriZ98
+ */
+public abstract class ElementWiseActivationFunction extends ActivationFunction implements DoubleUnaryOperator {
+
+    /**
+     * Calculates activation for single value.
+     *
+     * @param x value
+     * @return calculated activation
+     */
+    public abstract double calculate(double x);
+
+    /**
+     * Calculates derived activation for single value.
+     *
+     * @param x value
+     * @return calculated activation
+     */
+    public abstract double calculateDeriv(double x);
+
+    /**
+     * Calculates derived activation for single value when the activation of
+     * the value is already known. Functions whose derivative can be expressed
+     * by their output override this to avoid evaluating the function again.
+     *
+     * @param x value
+     * @param y activation of the value
+     * @return calculated derived activation
+     */
+    public double calculateDeriv(double x, double y) {
+        return calculateDeriv(x);
+    }
+
+    /**
+     * Calculates activation for single value.
+     *
+     * @param x value
+     * @return calculated activation
+     */
+    @Override
+    public final double applyAsDouble(double x) {
+        return calculate(x);
+    }
+
+    /**
+     * Calculates result for every entry of matrix and writes it into a
+     * destination matrix of the same size.
+     *
+     * @param M matrix with data to calculate
+     * @param C destination matrix, may be M
+     * @return destination matrix
+     */
+    @Override
+    public Matrix calculateMatInto(Matrix M, Matrix C) {
+        double[] c = C.getData();
+        double[] ma = M.getData();
+        for (int i = 0; i < M.getN(); i++) {
+            int row = M.getOffset() + i * M.getStride(), cRow = C.getOffset() + i * C.getStride();
+            for (int j = 0; j < M.getM(); j++) {
+                c[cRow + j] = calculate(ma[row + j]);
+            }
+        }
+        return C;
+    }
+
+    /**
+     * Calculates derived activation for every entry of vector.
+     *
+     * @param v vector with data to calculate
+     * @return calculated values as vector
+     */
+    @Override
+    public Vector calculateDerivVec(Vector v) {
+        double[] c = new double[v.getN()];
+        double[] va = v.getArray();
+        for (int i = 0; i < v.getN(); i++) {
+            c[i] = calculateDeriv(va[i]);
+        }
+        return new Vector(c);
+    }
+
+    /**
+     * Calculates derived activation for every entry of matrix.
+     *
+     * @param M matrix with data to calculate
+     * @return calculated values as matrix
+     */
+    @Override
+    public Matrix calculateDerivMat(Matrix M) {
+        Matrix C = new Matrix(M.getN(), M.getM());
+        double[] c = C.getData();
+        double[] ma = M.getData();
+        for (int i = 0; i < M.getN(); i++) {
+            int row = M.getOffset() + i * M.getStride(), cRow = C.getOffset() + i * C.getStride();
+            for (int j = 0; j < M.getM(); j++) {
+                c[cRow + j] = calculateDeriv(ma[row + j]);
+            }
+        }
+        return C;
+    }
+
+    /**
+     * Multiplies every entry of a matrix with the derived activation of the
+     * corresponding value. Propagates an error through the activation without
+     * creating the matrix of derived activations. The stored activations are
+     * used so that the function does not need to be evaluated again.
+     *
+     * @param values values of the layer without activation applied
+     * @param activations activations of the layer
+     * @param C matrix to multiply, usually the error of the layer
+     * @return multiplied matrix
+     */
+    @Override
+    public Matrix mulDerivInPlace(Matrix values, Matrix activations, Matrix C) {
+        double[] c = C.getData();
+        double[] va = values.getData();
+        double[] aa = activations.getData();
+        for (int i = 0; i < C.getN(); i++) {
+            int row = values.getOffset() + i * values.getStride();
+            int aRow = activations.getOffset() + i * activations.getStride();
+            int cRow = C.getOffset() + i * C.getStride();
+            for (int j = 0; j < C.getM(); j++) {
+                c[cRow + j] *= calculateDeriv(va[row + j], aa[aRow + j]);
+            }
+        }
+        return C;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.activation;
+
+/**
+ * Approximation of the sigmoid function that does not call Math.exp. The
+ * function is tabulated on [-16, 16] with a step of 1/128 and linearly
+ * interpolated between the entries. Outside of the range the values of the
+ * borders are used. The absolute error compared to the exact sigmoid function
+ * is below 8e-7 everywhere, the derivative computed from the approximated
+ * output is off by less than 1e-6. Networks trained with this function can be
+ * used with the exact sigmoid function and vice versa.
+ *
+ * @author ChriZ98
+ */
+public class FastSigmoidFunction extends SigmoidFunction {
+
+    private static final double RANGE = 16.0;
+    private static final double SCALE = 128.0;
+    private static final double[] TABLE = new double[(int) (2 * RANGE * SCALE) + 1];
+
+    static {
+        for (int i = 0; i < TABLE.length; i++) {
+            TABLE[i] = 1 / (1 + Math.exp(-(i / SCALE - RANGE)));
+        }
+    }
+
+    /**
+     * Calculates approximated activation for single value.
+     *
+     * @param x value
+     * @return calculated activation
+     */
+    @Override
+    public double calculate(double x) {
+        if (x <= -RANGE) {
+            return TABLE[0];
+        }
+        if (x >= RANGE) {
+            return TABLE[TABLE.length - 1];
+        }
+        double t = (x + RANGE) * SCALE;
+        int i = (int) t;
+        double f = t - i;
+        return TABLE[i] + f * (TABLE[i + 1] - TABLE[i]);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.activation;
+
+import zindach.mathlib.algebra.Matrix;
+
+/**
+ * Represents the identity. The values of a layer are passed on unchanged. Used
+ * for output layers whose activation is part of the cost function, like
+ * softmax in SoftmaxCrossEntropyCostFunction.
+ *
+ * @author ChriZ98
+ */
+public class IdentityFunction extends ElementWiseActivationFunction {
+
+    /**
+     * Calculates activation for single value.
+     *
+     * @param x value
+     * @return x
+     */
+    @Override
+    public double calculate(double x) {
+        return x;
+    }
+
+    /**
+     * Calculates derived activation for single value.
+     *
+     * @param x value
+     * @return 1
+     */
+    @Override
+    public double calculateDeriv(double x) {
+        return 1.0;
+    }
+
+    /**
+     * Copies every entry of matrix into a destination matrix of the same
+     * size.
+     *
+     * @param M matrix with data to calculate
+     * @param C destination matrix, may be M
+     * @return destination matrix
+     */
+    @Override
+    public Matrix calculateMatInto(Matrix M, Matrix C) {
+        return M == C ? C : M.copyInto(C);
+    }
+
+    /**
+     * Leaves the matrix unchanged because the derivative is 1 everywhere.
+     *
+     * @param values values of the layer without activation applied
+     * @param activations activations of the layer
+     * @param C matrix to multiply, usually the error of the layer
+     * @return unchanged matrix
+     */
+    @Override
+    public Matrix mulDerivInPlace(Matrix values, Matrix activations, Matrix C) {
+        return C;
+    }
+}
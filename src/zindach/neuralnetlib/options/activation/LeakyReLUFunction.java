@@ -0,0 +1,126 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.activation;
+
+import zindach.mathlib.algebra.Matrix;
+
+/**
+ * Represents the leaky rectified linear unit. Positive values are passed
+ * through, negative values are multiplied with a small slope so that the
+ * gradient never vanishes completely. A slope of zero gives the plain ReLU.
+ * No transcendental function is evaluated.
+ *
+ * @author ChriZ98
+ */
+public class LeakyReLUFunction extends ElementWiseActivationFunction {
+
+    private final double slope;
+
+    /**
+     * Initializes the function with a slope of 0.01 for negative values.
+     */
+    public LeakyReLUFunction() {
+        this(0.01);
+    }
+
+    /**
+     * Initializes the function with the given slope for negative values.
+     *
+     * @param slope factor applied on negative values
+     */
+    public LeakyReLUFunction(double slope) {
+        this.slope = slope;
+    }
+
+    /**
+     * Calculates activation for single value.
+     *
+     * @param x value
+     * @return calculated activation
+     */
+    @Override
+    public double calculate(double x) {
+        return x > 0 ? x : slope * x;
+    }
+
+    /**
+     * Calculates derived activation for single value.
+     *
+     * @param x value
+     * @return calculated activation
+     */
+    @Override
+    public double calculateDeriv(double x) {
+        return x > 0 ? 1.0 : slope;
+    }
+
+    /**
+     * Calculates derived activation for single value.
+     *
+     * @param x value
+     * @param y activation of the value
+     * @return calculated derived activation
+     */
+    @Override
+    public double calculateDeriv(double x, double y) {
+        return x > 0 ? 1.0 : slope;
+    }
+
+    /**
+     * Calculates result for every entry of matrix and writes it into a
+     * destination matrix of the same size.
+     *
+     * @param M matrix with data to calculate
+     * @param C destination matrix, may be M
+     * @return destination matrix
+     */
+    @Override
+    public Matrix calculateMatInto(Matrix M, Matrix C) {
+        double[] c = C.getData();
+        double[] ma = M.getData();
+        for (int i = 0; i < M.getN(); i++) {
+            int row = M.getOffset() + i * M.getStride(), cRow = C.getOffset() + i * C.getStride();
+            for (int j = 0; j < M.getM(); j++) {
+                double x = ma[row + j];
+                c[cRow + j] = x > 0 ? x : slope * x;
+            }
+        }
+        return C;
+    }
+
+    /**
+     * Multiplies every entry of a matrix with the derived activation of the
+     * corresponding value.
+     *
+     * @param values values of the layer without activation applied
+     * @param activations activations of the layer
+     * @param C matrix to multiply, usually the error of the layer
+     * @return multiplied matrix
+     */
+    @Override
+    public Matrix mulDerivInPlace(Matrix values, Matrix activations, Matrix C) {
+        double[] c = C.getData();
+        double[] va = values.getData();
+        for (int i = 0; i < C.getN(); i++) {
+            int row = values.getOffset() + i * values.getStride(), cRow = C.getOffset() + i * C.getStride();
+            for (int j = 0; j < C.getM(); j++) {
+                if (va[row + j] <= 0) {
+                    c[cRow + j] *= slope;
+                }
+            }
+        }
+        return C;
+    }
+
+    /**
+     * Gets the slope for negative values.
+     *
+     * @return factor applied on negative values
+     */
+    public double getSlope() {
+        return slope;
+    }
+}
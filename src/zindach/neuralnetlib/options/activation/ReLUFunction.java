@@ -0,0 +1,22 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.activation;
+
+/**
+ * Represents the rectified linear unit. Maps every x to max(0, x). Cheap to
+ * calculate and usually converges in fewer epochs than the sigmoid function.
+ *
+ * @author ChriZ98
+ */
+public class ReLUFunction extends LeakyReLUFunction {
+
+    /**
+     * Initializes the function.
+     */
+    public ReLUFunction() {
+        super(0.0);
+    }
+}
@@ -5,16 +5,13 @@
  */
 package zindach.neuralnetlib.options.activation;
 
-import zindach.mathlib.algebra.Matrix;
-import zindach.mathlib.algebra.Vector;
-
 /**
  * Represents the sigmoid activation function. Maps every x to a y between 0 and
  * 1.
  *
  * @author ChriZ98
  */
-public class SigmoidFunction extends ActivationFunction {
+public class SigmoidFunction extends ElementWiseActivationFunction {
 
     /**
      * Calculates activation for single value.
@@ -22,42 +19,9 @@ public class SigmoidFunction extends ActivationFunction {
      * @param x value
      * @return calculated activation
      */
-    private double calculate(double x) {
-        return 1 / (1 + Math.exp(-x));
-    }
-
-    /**
-     * Calculates activation for every entry of vector.
-     *
-     * @param v vector with data to calculate
-     * @return calculated values as vector
-     */
-    @Override
-    public Vector calculateVec(Vector v) {
-        double[] c = new double[v.getN()];
-        double[] va = v.getArray();
-        for (int i = 0; i < v.getN(); i++) {
-            c[i] = calculate(va[i]);
-        }
-        return new Vector(c);
-    }
-
-    /**
-     * Calculates result for every entry of matrix.
-     *
-     * @param M matrix with data to calculate
-     * @return calculated values as matrix
-     */
     @Override
-    public Matrix calculateMat(Matrix M) {
-        double[][] C = new double[M.getN()][M.getM()];
-        double[][] MA = M.getArray();
-        for (int i = 0; i < M.getN(); i++) {
-            for (int j = 0; j < M.getM(); j++) {
-                C[i][j] = calculate(MA[i][j]);
-            }
-        }
-        return new Matrix(C);
+    public double calculate(double x) {
+        return 1 / (1 + Math.exp(-x));
     }
 
     /**
@@ -66,41 +30,22 @@ public class SigmoidFunction extends ActivationFunction {
      * @param x value
      * @return calculated activation
      */
-    private double calculateDeriv(double x) {
-        return Math.exp(x) / Math.pow(Math.exp(x) + 1.0, 2.0);
-    }
-
-    /**
-     * Calculates derived activation for every entry of vector.
-     *
-     * @param v vector with data to calculate
-     * @return calculated values as vector
-     */
     @Override
-    public Vector calculateDerivVec(Vector v) {
-        double[] c = new double[v.getN()];
-        double[] va = v.getArray();
-        for (int i = 0; i < v.getN(); i++) {
-            c[i] = calculateDeriv(va[i]);
-        }
-        return new Vector(c);
+    public double calculateDeriv(double x) {
+        double y = calculate(x);
+        return y * (1.0 - y);
     }
 
     /**
-     * Calculates derived activation for every entry of matrix.
+     * Calculates derived activation for single value using the already known
+     * activation. The derivative of the sigmoid function is y * (1 - y).
      *
-     * @param M matrix with data to calculate
-     * @return calculated values as matrix
+     * @param x value
+     * @param y activation of the value
+     * @return calculated derived activation
      */
     @Override
-    public Matrix calculateDerivMat(Matrix M) {
-        double[][] C = new double[M.getN()][M.getM()];
-        double[][] MA = M.getArray();
-        for (int i = 0; i < M.getN(); i++) {
-            for (int j = 0; j < M.getM(); j++) {
-                C[i][j] = calculateDeriv(MA[i][j]);
-            }
-        }
-        return new Matrix(C);
+    public double calculateDeriv(double x, double y) {
+        return y * (1.0 - y);
     }
 }
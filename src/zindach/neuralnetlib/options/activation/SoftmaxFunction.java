@@ -0,0 +1,98 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.activation;
+
+import zindach.mathlib.algebra.Matrix;
+
+/**
+ * Represents the softmax activation function. Turns every column into a
+ * probability distribution: y_i = exp(x_i) / sum(exp(x_k)). The maximum of the
+ * column is subtracted before exponentiation so that large values do not
+ * overflow. Softmax is not element wise, so it has no single value methods and
+ * can only be used for the output layer.
+ *
+ * @author ChriZ98
+ */
+public class SoftmaxFunction extends ActivationFunction {
+
+    /**
+     * Calculates the softmax of every column and writes it into a destination
+     * matrix of the same size.
+     *
+     * @param M matrix with data to calculate
+     * @param C destination matrix, may be M
+     * @return destination matrix
+     */
+    @Override
+    public Matrix calculateMatInto(Matrix M, Matrix C) {
+        double[] c = C.getData();
+        double[] ma = M.getData();
+        int mOff = M.getOffset(), mStride = M.getStride();
+        int cOff = C.getOffset(), cStride = C.getStride();
+        for (int j = 0; j < M.getM(); j++) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < M.getN(); i++) {
+                max = Math.max(max, ma[mOff + i * mStride + j]);
+            }
+            double sum = 0;
+            for (int i = 0; i < M.getN(); i++) {
+                double e = Math.exp(ma[mOff + i * mStride + j] - max);
+                c[cOff + i * cStride + j] = e;
+                sum += e;
+            }
+            double inv = 1.0 / sum;
+            for (int i = 0; i < M.getN(); i++) {
+                c[cOff + i * cStride + j] *= inv;
+            }
+        }
+        return C;
+    }
+
+    /**
+     * Calculates the diagonal of the derivative for every entry of matrix.
+     *
+     * @param M matrix with data to calculate
+     * @return calculated values as matrix
+     */
+    @Override
+    public Matrix calculateDerivMat(Matrix M) {
+        Matrix C = calculateMat(M);
+        double[] c = C.getData();
+        for (int k = 0; k < c.length; k++) {
+            c[k] *= 1.0 - c[k];
+        }
+        return C;
+    }
+
+    /**
+     * Multiplies every column of a matrix with the transposed Jacobian of
+     * softmax. For a column g of C and activations y the result is
+     * y * (g - dot(y, g)).
+     *
+     * @param values values of the layer without activation applied
+     * @param activations activations of the layer
+     * @param C matrix to multiply, usually the error of the layer
+     * @return multiplied matrix
+     */
+    @Override
+    public Matrix mulDerivInPlace(Matrix values, Matrix activations, Matrix C) {
+        double[] c = C.getData();
+        double[] aa = activations.getData();
+        int aOff = activations.getOffset(), aStride = activations.getStride();
+        int cOff = C.getOffset(), cStride = C.getStride();
+        for (int j = 0; j < C.getM(); j++) {
+            double dot = 0;
+            for (int i = 0; i < C.getN(); i++) {
+                dot += aa[aOff + i * aStride + j] * c[cOff + i * cStride + j];
+            }
+            for (int i = 0; i < C.getN(); i++) {
+                int k = cOff + i * cStride + j;
+                c[k] = aa[aOff + i * aStride + j] * (c[k] - dot);
+            }
+        }
+        return C;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.activation;
+
+/**
+ * Represents the hyperbolic tangent activation function. Maps every x to a y
+ * between -1 and 1. Unlike the sigmoid function the outputs are centered
+ * around zero.
+ *
+ * @author ChriZ98
+ */
+public class TanhFunction extends ElementWiseActivationFunction {
+
+    /**
+     * Calculates activation for single value.
+     *
+     * @param x value
+     * @return calculated activation
+     */
+    @Override
+    public double calculate(double x) {
+        return Math.tanh(x);
+    }
+
+    /**
+     * Calculates derived activation for single value.
+     *
+     * @param x value
+     * @return calculated activation
+     */
+    @Override
+    public double calculateDeriv(double x) {
+        double y = Math.tanh(x);
+        return 1.0 - y * y;
+    }
+
+    /**
+     * Calculates derived activation for single value using the already known
+     * activation. The derivative of tanh is 1 - y^2.
+     *
+     * @param x value
+     * @param y activation of the value
+     * @return calculated derived activation
+     */
+    @Override
+    public double calculateDeriv(double x, double y) {
+        return 1.0 - y * y;
+    }
+}
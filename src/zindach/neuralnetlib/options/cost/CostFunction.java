@@ -5,6 +5,7 @@
  */
 package zindach.neuralnetlib.options.cost;
 
+import java.util.Arrays;
 import zindach.mathlib.algebra.Matrix;
 import zindach.mathlib.algebra.Vector;
 import zindach.neuralnetlib.net.NeuralNetwork;
@@ -19,14 +20,66 @@ import zindach.neuralnetlib.options.activation.ActivationFunction;
 public abstract class CostFunction {
 
     /**
-     * Calculates the total cost for some given test data.
+     * Number of vectors copied into a matrix at once when the total cost is
+     * calculated for vectors.
+     */
+    private static final int VECTOR_BLOCK_SIZE = 16 * NeuralNetwork.EVALUATION_CHUNK_SIZE;
+
+    /**
+     * Calculates the total cost for some given test data. The vectors are
+     * copied into matrices block by block, so the whole data set is never
+     * copied at once.
+     *
+     * @param net network to test
+     * @param dataIn input test data
+     * @param dataOut output test data for evaluation
+     * @return cost evaluated
+     */
+    public double calculateTotal(NeuralNetwork net, Vector[] dataIn, Vector[] dataOut) {
+        double sum = 0;
+        for (int k = 0; k < dataIn.length; k += VECTOR_BLOCK_SIZE) {
+            int end = Math.min(k + VECTOR_BLOCK_SIZE, dataIn.length);
+            sum += calculateSum(net, new Matrix(Arrays.copyOfRange(dataIn, k, end)), new Matrix(Arrays.copyOfRange(dataOut, k, end)));
+        }
+        return sum / dataIn.length;
+    }
+
+    /**
+     * Calculates the total cost for some given test data organized in
+     * matrices. Every column holds one example. The data is fed forward in
+     * chunks that are calculated in parallel.
      *
      * @param net network to test
      * @param dataIn input test data
      * @param dataOut output test data for evaluation
      * @return cost evaluated
      */
-    public abstract double calculateTotal(NeuralNetwork net, Vector[] dataIn, Vector[] dataOut);
+    public double calculateTotal(NeuralNetwork net, Matrix dataIn, Matrix dataOut) {
+        return calculateSum(net, dataIn, dataOut) / dataIn.getM();
+    }
+
+    /**
+     * Calculates the sum of the cost of all examples of some given test data.
+     *
+     * @param net network to test
+     * @param dataIn input test data
+     * @param dataOut output test data for evaluation
+     * @return summed cost
+     */
+    private double calculateSum(NeuralNetwork net, Matrix dataIn, Matrix dataOut) {
+        return net.sumChunks(dataIn, dataOut, (ws, out) -> calculateSum(ws.getOutput(), ws.getOutputValues(), out));
+    }
+
+    /**
+     * Calculates the sum of the cost of all examples of one chunk. Every
+     * column holds one example.
+     *
+     * @param calcOut calculated output
+     * @param values values of the output layer without activation applied
+     * @param dataOut output for evaluation
+     * @return summed cost
+     */
+    public abstract double calculateSum(Matrix calcOut, Matrix values, Matrix dataOut);
 
     /**
      * Calculates the error for one vector of training data.
@@ -37,5 +90,20 @@ public abstract class CostFunction {
      * @param activationFunction activation function used in neural network
      * @return calculated error
      */
-    public abstract Matrix calculateError(Matrix calcOut, Matrix dataOut, Matrix values, ActivationFunction activationFunction);
+    public Matrix calculateError(Matrix calcOut, Matrix dataOut, Matrix values, ActivationFunction activationFunction) {
+        return calculateErrorInto(calcOut, dataOut, values, activationFunction, new Matrix(calcOut.getN(), calcOut.getM()));
+    }
+
+    /**
+     * Calculates the error for a batch of training data and writes it into a
+     * destination matrix of the same size as the output.
+     *
+     * @param calcOut calculated output
+     * @param dataOut output for evaluation
+     * @param values values of network without activation applied
+     * @param activationFunction activation function used in neural network
+     * @param C destination matrix
+     * @return destination matrix
+     */
+    public abstract Matrix calculateErrorInto(Matrix calcOut, Matrix dataOut, Matrix values, ActivationFunction activationFunction, Matrix C);
 }
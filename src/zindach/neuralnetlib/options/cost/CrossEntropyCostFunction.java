@@ -6,51 +6,64 @@
 package zindach.neuralnetlib.options.cost;
 
 import zindach.mathlib.algebra.Matrix;
-import zindach.mathlib.algebra.Vector;
-import zindach.neuralnetlib.net.NeuralNetwork;
 import zindach.neuralnetlib.options.activation.ActivationFunction;
+import zindach.neuralnetlib.options.activation.SigmoidFunction;
 
 /**
  * Represents the cross entropy cost function. C = - 1/n sum(y ln a + (1-y)
- * ln(1-a))
+ * ln(1-a)). The cost is only defined for outputs between 0 and 1, so the
+ * output layer has to use the sigmoid function. For softmax outputs use
+ * SoftmaxCrossEntropyCostFunction.
  *
  * @author ChriZ98
  */
 public class CrossEntropyCostFunction extends CostFunction {
 
     /**
-     * Calculates the total cost for some given test data.
+     * Calculates the sum of the cost of all examples of one chunk. Every
+     * column holds one example.
      *
-     * @param net network to test
-     * @param dataIn input test data
-     * @param dataOut output test data for evaluation
-     * @return cost evaluated
+     * @param calcOut calculated output
+     * @param values values of the output layer without activation applied
+     * @param dataOut output for evaluation
+     * @return summed cost
      */
     @Override
-    public double calculateTotal(NeuralNetwork net, Vector[] dataIn, Vector[] dataOut) {
+    public double calculateSum(Matrix calcOut, Matrix values, Matrix dataOut) {
         double sum = 0;
-        double[][] MA = net.feedforward(new Matrix(dataIn)).getArray();
-        for (int i = 0; i < dataIn.length; i++) {
-            double[] y = dataOut[i].getArray();
-            for (int j = 0; j < y.length; j++) {
-                sum += y[j] * Math.log(MA[j][i]) + (1.0 - y[j]) * Math.log(1.0 - MA[j][i]);
+        double[] ma = calcOut.getData();
+        double[] ya = dataOut.getData();
+        for (int i = 0; i < calcOut.getN(); i++) {
+            int row = calcOut.getOffset() + i * calcOut.getStride(), yRow = dataOut.getOffset() + i * dataOut.getStride();
+            for (int j = 0; j < calcOut.getM(); j++) {
+                double a = ma[row + j], y = ya[yRow + j];
+                sum += y * Math.log(a) + (1.0 - y) * Math.log(1.0 - a);
             }
         }
-        return -(1.0 / dataIn.length) * sum;
+        return -sum;
     }
 
     /**
-     * Calculates the error for one vector of training data.
+     * Calculates the error for a batch of training data and writes it into a
+     * destination matrix of the same size as the output. The derivative of
+     * the sigmoid function cancels out and the error is simply a - y.
      *
-     * @param calcOut calculated output vector
-     * @param dataOut output vector for evaluation
+     * @param calcOut calculated output
+     * @param dataOut output for evaluation
      * @param values values of network without activation applied
      * @param activationFunction activation function used in neural network
-     * @return calculated error
+     * @param C destination matrix
+     * @return destination matrix
+     * @throws IllegalArgumentException if the output layer does not use the
+     * sigmoid function
      */
     @Override
-    public Matrix calculateError(Matrix calcOut, Matrix dataOut, Matrix values, ActivationFunction activationFunction) {
-        return calcOut.subMat(dataOut);
+    public Matrix calculateErrorInto(Matrix calcOut, Matrix dataOut, Matrix values, ActivationFunction activationFunction, Matrix C) {
+        if (!(activationFunction instanceof SigmoidFunction)) {
+            throw new IllegalArgumentException("Cross entropy needs sigmoid outputs but got "
+                    + activationFunction.getClass().getSimpleName()
+                    + ", use SoftmaxCrossEntropyCostFunction for softmax outputs");
+        }
+        return calcOut.subMatInto(dataOut, C);
     }
-
 }
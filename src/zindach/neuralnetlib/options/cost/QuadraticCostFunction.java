@@ -6,8 +6,6 @@
 package zindach.neuralnetlib.options.cost;
 
 import zindach.mathlib.algebra.Matrix;
-import zindach.mathlib.algebra.Vector;
-import zindach.neuralnetlib.net.NeuralNetwork;
 import zindach.neuralnetlib.options.activation.ActivationFunction;
 
 /**
@@ -19,34 +17,42 @@ import zindach.neuralnetlib.options.activation.ActivationFunction;
 public class QuadraticCostFunction extends CostFunction {
 
     /**
-     * Calculates the total cost for some given test data.
+     * Calculates the sum of the cost of all examples of one chunk. Every
+     * column holds one example.
      *
-     * @param net network to test
-     * @param dataIn input test data
-     * @param dataOut output test data for evaluation
-     * @return cost evaluated
+     * @param calcOut calculated output
+     * @param values values of the output layer without activation applied
+     * @param dataOut output for evaluation
+     * @return summed cost
      */
     @Override
-    public double calculateTotal(NeuralNetwork net, Vector[] dataIn, Vector[] dataOut) {
+    public double calculateSum(Matrix calcOut, Matrix values, Matrix dataOut) {
         double sum = 0;
-        Vector[] errorCols = new Matrix(dataOut).subMat(net.feedforward(new Matrix(dataIn))).getCols();
-        for (int i = 0; i < dataIn.length; i++) {
-            sum += Math.pow(errorCols[i].length(), 2);
+        double[] ma = calcOut.getData();
+        double[] ya = dataOut.getData();
+        for (int i = 0; i < calcOut.getN(); i++) {
+            int row = calcOut.getOffset() + i * calcOut.getStride(), yRow = dataOut.getOffset() + i * dataOut.getStride();
+            for (int j = 0; j < calcOut.getM(); j++) {
+                double e = ma[row + j] - ya[yRow + j];
+                sum += e * e;
+            }
         }
-        return (1.0 / (2.0 * dataIn.length)) * sum;
+        return 0.5 * sum;
     }
 
     /**
-     * Calculates the error for one vector of training data.
+     * Calculates the error for a batch of training data and writes it into a
+     * destination matrix of the same size as the output.
      *
-     * @param calcOut calculated output vector
-     * @param dataOut output vector for evaluation
+     * @param calcOut calculated output
+     * @param dataOut output for evaluation
      * @param values values of network without activation applied
      * @param activationFunction activation function used in neural network
-     * @return calculated error
+     * @param C destination matrix
+     * @return destination matrix
      */
     @Override
-    public Matrix calculateError(Matrix calcOut, Matrix dataOut, Matrix values, ActivationFunction activationFunction) {
-        return calcOut.subMat(dataOut).hadamardMat(activationFunction.calculateDerivMat(values));
+    public Matrix calculateErrorInto(Matrix calcOut, Matrix dataOut, Matrix values, ActivationFunction activationFunction, Matrix C) {
+        return activationFunction.mulDerivInPlace(values, calcOut, calcOut.subMatInto(dataOut, C));
     }
 }
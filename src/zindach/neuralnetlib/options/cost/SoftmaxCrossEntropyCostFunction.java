@@ -0,0 +1,97 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.cost;
+
+import zindach.mathlib.algebra.Matrix;
+import zindach.neuralnetlib.options.activation.ActivationFunction;
+
+/**
+ * Represents softmax followed by the categorical cross entropy. C = - 1/n
+ * sum(y ln softmax(z)). The cost works on the values z of the output layer
+ * before activation, so the output layer should use the IdentityFunction or
+ * the SoftmaxFunction. Softmax, logarithm and error are calculated in one pass
+ * per column. The maximum of every column is subtracted first, so large values
+ * neither overflow nor lose precision, and only one logarithm per column is
+ * needed.
+ *
+ * @author ChriZ98
+ */
+public class SoftmaxCrossEntropyCostFunction extends CostFunction {
+
+    /**
+     * Calculates the sum of the cost of all examples of one chunk. Every
+     * column holds one example.
+     *
+     * @param calcOut calculated output, not needed
+     * @param values values of the output layer without activation applied
+     * @param dataOut output for evaluation
+     * @return summed cost
+     */
+    @Override
+    public double calculateSum(Matrix calcOut, Matrix values, Matrix dataOut) {
+        double[] z = values.getData();
+        double[] y = dataOut.getData();
+        int zOff = values.getOffset(), zStride = values.getStride();
+        int yOff = dataOut.getOffset(), yStride = dataOut.getStride();
+        double sum = 0;
+        for (int j = 0; j < values.getM(); j++) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < values.getN(); i++) {
+                max = Math.max(max, z[zOff + i * zStride + j]);
+            }
+            double exp = 0, dot = 0, weight = 0;
+            for (int i = 0; i < values.getN(); i++) {
+                double shifted = z[zOff + i * zStride + j] - max;
+                double yi = y[yOff + i * yStride + j];
+                exp += Math.exp(shifted);
+                dot += yi * shifted;
+                weight += yi;
+            }
+            sum += dot - weight * Math.log(exp);
+        }
+        return -sum;
+    }
+
+    /**
+     * Calculates the error for a batch of training data and writes it into a
+     * destination matrix of the same size as the output. The error with
+     * respect to the values of the output layer is softmax(z) - y.
+     *
+     * @param calcOut calculated output, not needed
+     * @param dataOut output for evaluation
+     * @param values values of network without activation applied
+     * @param activationFunction activation function used in neural network,
+     * not needed
+     * @param C destination matrix
+     * @return destination matrix
+     */
+    @Override
+    public Matrix calculateErrorInto(Matrix calcOut, Matrix dataOut, Matrix values, ActivationFunction activationFunction, Matrix C) {
+        double[] z = values.getData();
+        double[] y = dataOut.getData();
+        double[] c = C.getData();
+        int zOff = values.getOffset(), zStride = values.getStride();
+        int yOff = dataOut.getOffset(), yStride = dataOut.getStride();
+        int cOff = C.getOffset(), cStride = C.getStride();
+        for (int j = 0; j < values.getM(); j++) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < values.getN(); i++) {
+                max = Math.max(max, z[zOff + i * zStride + j]);
+            }
+            double exp = 0;
+            for (int i = 0; i < values.getN(); i++) {
+                double e = Math.exp(z[zOff + i * zStride + j] - max);
+                c[cOff + i * cStride + j] = e;
+                exp += e;
+            }
+            double inv = 1.0 / exp;
+            for (int i = 0; i < values.getN(); i++) {
+                c[cOff + i * cStride + j] = c[cOff + i * cStride + j] * inv - y[yOff + i * yStride + j];
+            }
+        }
+        return C;
+    }
+}
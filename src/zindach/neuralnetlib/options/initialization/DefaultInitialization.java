@@ -51,13 +51,11 @@ public class DefaultInitialization extends WeightInitialization {
         Matrix[] weights = new Matrix[sizes.length - 1];
 
         for (int i = 0; i < sizes.length - 1; i++) {
-            double[][] weight = new double[sizes[i + 1]][sizes[i]];
-            for (int j = 0; j < sizes[i + 1]; j++) {
-                for (int k = 0; k < sizes[i]; k++) {
-                    weight[j][k] = rand.nextGaussian();
-                }
+            double[] weight = new double[sizes[i + 1] * sizes[i]];
+            for (int j = 0; j < weight.length; j++) {
+                weight[j] = rand.nextGaussian();
             }
-            weights[i] = new Matrix(weight);
+            weights[i] = new Matrix(sizes[i + 1], sizes[i], weight);
         }
 
         return weights;
@@ -0,0 +1,81 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.optimizer;
+
+/**
+ * Represents Adam. Every parameter keeps decaying averages of its gradients
+ * and of its squared gradients. The step is the first average divided by the
+ * root of the second one, both corrected for their start at zero: p = p -
+ * learningRate * m' / (sqrt(v') + epsilon). Usually needs a much smaller
+ * learning rate than gradient descent, e.g. 0.001.
+ *
+ * @author ChriZ98
+ */
+public class AdamOptimizer extends Optimizer {
+
+    private final double beta1;
+    private final double beta2;
+    private final double epsilon;
+
+    /**
+     * Initializes the optimizer with beta1 = 0.9, beta2 = 0.999 and epsilon =
+     * 1e-8.
+     */
+    public AdamOptimizer() {
+        this(0.9, 0.999, 1e-8);
+    }
+
+    /**
+     * Initializes the optimizer.
+     *
+     * @param beta1 fraction of the average of the gradients kept every step
+     * @param beta2 fraction of the average of the squared gradients kept every
+     * step
+     * @param epsilon small value preventing division by zero
+     */
+    public AdamOptimizer(double beta1, double beta2, double epsilon) {
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Changes the parameters of one weight matrix or bias vector.
+     *
+     * @param p parameters
+     * @param pOff index of the first parameter
+     * @param g summed gradients of the parameters
+     * @param gOff index of the first gradient
+     * @param length number of parameters
+     * @param state averages of the gradients and of the squared gradients
+     * @param learningRate learning rate
+     * @param scale factor turning the summed gradients into the average
+     * @param step number of the update used for the bias correction
+     */
+    @Override
+    protected void update(double[] p, int pOff, double[] g, int gOff, int length, double[][] state, double learningRate, double scale, int step) {
+        double[] m = state[0];
+        double[] v = state[1];
+        double rate = learningRate * Math.sqrt(1 - Math.pow(beta2, step)) / (1 - Math.pow(beta1, step));
+        double eps = epsilon * Math.sqrt(1 - Math.pow(beta2, step));
+        for (int k = 0; k < length; k++) {
+            double gk = scale * g[gOff + k];
+            m[k] = beta1 * m[k] + (1 - beta1) * gk;
+            v[k] = beta2 * v[k] + (1 - beta2) * gk * gk;
+            p[pOff + k] -= rate * m[k] / (Math.sqrt(v[k]) + eps);
+        }
+    }
+
+    /**
+     * Gets the number of buffers needed for every parameter.
+     *
+     * @return 2 for the averages of the gradients and the squared gradients
+     */
+    @Override
+    protected int getStateCount() {
+        return 2;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.optimizer;
+
+/**
+ * Represents plain gradient descent. Every parameter moves against its
+ * average gradient: p = p - learningRate * g. Needs no state.
+ *
+ * @author ChriZ98
+ */
+public class GradientDescentOptimizer extends Optimizer {
+
+    /**
+     * Changes the parameters of one weight matrix or bias vector.
+     *
+     * @param p parameters
+     * @param pOff index of the first parameter
+     * @param g summed gradients of the parameters
+     * @param gOff index of the first gradient
+     * @param length number of parameters
+     * @param state not needed
+     * @param learningRate learning rate
+     * @param scale factor turning the summed gradients into the average
+     * @param step not needed
+     */
+    @Override
+    protected void update(double[] p, int pOff, double[] g, int gOff, int length, double[][] state, double learningRate, double scale, int step) {
+        double s = -learningRate * scale;
+        for (int k = 0; k < length; k++) {
+            p[pOff + k] += s * g[gOff + k];
+        }
+    }
+
+    /**
+     * Gets the number of buffers needed for every parameter.
+     *
+     * @return 0
+     */
+    @Override
+    protected int getStateCount() {
+        return 0;
+    }
+}
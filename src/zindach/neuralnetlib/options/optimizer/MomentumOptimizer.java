@@ -0,0 +1,76 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.optimizer;
+
+/**
+ * Represents gradient descent with momentum. Every parameter has a velocity
+ * that keeps a decaying sum of past steps: v = momentum * v - learningRate *
+ * g, p = p + v. Directions that stay the same speed up, oscillations cancel.
+ *
+ * @author ChriZ98
+ */
+public class MomentumOptimizer extends Optimizer {
+
+    private final double momentum;
+
+    /**
+     * Initializes the optimizer with a momentum of 0.9.
+     */
+    public MomentumOptimizer() {
+        this(0.9);
+    }
+
+    /**
+     * Initializes the optimizer.
+     *
+     * @param momentum fraction of the velocity kept every step
+     */
+    public MomentumOptimizer(double momentum) {
+        this.momentum = momentum;
+    }
+
+    /**
+     * Changes the parameters of one weight matrix or bias vector.
+     *
+     * @param p parameters
+     * @param pOff index of the first parameter
+     * @param g summed gradients of the parameters
+     * @param gOff index of the first gradient
+     * @param length number of parameters
+     * @param state velocities
+     * @param learningRate learning rate
+     * @param scale factor turning the summed gradients into the average
+     * @param step not needed
+     */
+    @Override
+    protected void update(double[] p, int pOff, double[] g, int gOff, int length, double[][] state, double learningRate, double scale, int step) {
+        double[] v = state[0];
+        double s = -learningRate * scale;
+        for (int k = 0; k < length; k++) {
+            v[k] = momentum * v[k] + s * g[gOff + k];
+            p[pOff + k] += v[k];
+        }
+    }
+
+    /**
+     * Gets the number of buffers needed for every parameter.
+     *
+     * @return 1 for the velocity
+     */
+    @Override
+    protected int getStateCount() {
+        return 1;
+    }
+
+    /**
+     * Gets the momentum.
+     *
+     * @return fraction of the velocity kept every step
+     */
+    public double getMomentum() {
+        return momentum;
+    }
+}
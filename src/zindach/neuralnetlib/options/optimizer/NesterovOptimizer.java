@@ -0,0 +1,79 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.optimizer;
+
+/**
+ * Represents gradient descent with Nesterov momentum. Works like momentum but
+ * the gradient is taken as if the velocity had already been applied. Since
+ * the gradient is calculated at the current parameters, the look ahead is
+ * rewritten as p = p - momentum * v_old + (1 + momentum) * v with v =
+ * momentum * v_old - learningRate * g.
+ *
+ * @author ChriZ98
+ */
+public class NesterovOptimizer extends Optimizer {
+
+    private final double momentum;
+
+    /**
+     * Initializes the optimizer with a momentum of 0.9.
+     */
+    public NesterovOptimizer() {
+        this(0.9);
+    }
+
+    /**
+     * Initializes the optimizer.
+     *
+     * @param momentum fraction of the velocity kept every step
+     */
+    public NesterovOptimizer(double momentum) {
+        this.momentum = momentum;
+    }
+
+    /**
+     * Changes the parameters of one weight matrix or bias vector.
+     *
+     * @param p parameters
+     * @param pOff index of the first parameter
+     * @param g summed gradients of the parameters
+     * @param gOff index of the first gradient
+     * @param length number of parameters
+     * @param state velocities
+     * @param learningRate learning rate
+     * @param scale factor turning the summed gradients into the average
+     * @param step not needed
+     */
+    @Override
+    protected void update(double[] p, int pOff, double[] g, int gOff, int length, double[][] state, double learningRate, double scale, int step) {
+        double[] v = state[0];
+        double s = -learningRate * scale;
+        for (int k = 0; k < length; k++) {
+            double old = v[k];
+            v[k] = momentum * old + s * g[gOff + k];
+            p[pOff + k] += (1 + momentum) * v[k] - momentum * old;
+        }
+    }
+
+    /**
+     * Gets the number of buffers needed for every parameter.
+     *
+     * @return 1 for the velocity
+     */
+    @Override
+    protected int getStateCount() {
+        return 1;
+    }
+
+    /**
+     * Gets the momentum.
+     *
+     * @return fraction of the velocity kept every step
+     */
+    public double getMomentum() {
+        return momentum;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.optimizer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.Vector;
+import zindach.neuralnetlib.net.NeuralNetwork;
+
+/**
+ * An abstract superclass for optimizers. Optimizers decide how the gradients
+ * of a batch change the weights and biases of a network. Optimizers that
+ * remember past gradients keep their state in buffers of the same size as the
+ * parameters. The buffers are allocated at the first update and changed in
+ * place afterwards, so updates do not allocate memory. An optimizer belongs to
+ * one network. Concurrent updates each get their own step from an atomic
+ * counter, but the buffers are changed without synchronization.
+ *
+ * @author ChriZ98
+ */
+public abstract class Optimizer {
+
+    private final AtomicInteger steps = new AtomicInteger();
+    private volatile double[][][] states;
+
+    /**
+     * Changes the weights and biases of a network using the summed gradients
+     * of a batch.
+     *
+     * @param net network to change
+     * @param weightErrors summed gradients of the weights of every layer
+     * @param biasErrors summed gradients of the biases of every layer
+     * @param learningRate learning rate determines how fast the weights in the
+     * network are changed
+     * @param batchSize number of examples the gradients are summed over
+     */
+    public void update(NeuralNetwork net, Matrix[] weightErrors, Vector[] biasErrors, double learningRate, int batchSize) {
+        Matrix[] weights = net.getWeights();
+        Vector[] biases = net.getBiases();
+        double[][][] s = getStates(weights, biases);
+        int step = steps.incrementAndGet();
+        double scale = 1.0 / batchSize;
+        for (int i = 0; i < weights.length; i++) {
+            Matrix W = weights[i], G = weightErrors[i];
+            update(W.getData(), W.getOffset(), G.getData(), G.getOffset(), W.getN() * W.getM(), s[2 * i], learningRate, scale, step);
+            update(biases[i].getArray(), 0, biasErrors[i].getArray(), 0, biases[i].getN(), s[2 * i + 1], learningRate, scale, step);
+        }
+    }
+
+    /**
+     * Changes the parameters of one weight matrix or bias vector.
+     *
+     * @param p parameters
+     * @param pOff index of the first parameter
+     * @param g summed gradients of the parameters
+     * @param gOff index of the first gradient
+     * @param length number of parameters
+     * @param state buffers of the optimizer for these parameters, indexed
+     * like the parameters starting at 0
+     * @param learningRate learning rate
+     * @param scale factor turning the summed gradients into the average
+     * @param step number of the update starting at 1
+     */
+    protected abstract void update(double[] p, int pOff, double[] g, int gOff, int length, double[][] state, double learningRate, double scale, int step);
+
+    /**
+     * Gets the number of buffers needed for every parameter.
+     *
+     * @return number of state buffers
+     */
+    protected abstract int getStateCount();
+
+    /**
+     * Forgets all past gradients. The next update starts like the first one.
+     */
+    public void reset() {
+        states = null;
+        steps.set(0);
+    }
+
+    /**
+     * Gets the state buffers for the parameters of a network and allocates
+     * them if the network does not match the current buffers.
+     *
+     * @param weights weights of the network
+     * @param biases biases of the network
+     * @return state buffers, two entries per layer for weights and biases
+     */
+    private double[][][] getStates(Matrix[] weights, Vector[] biases) {
+        double[][][] s = states;
+        if (s != null && s.length == 2 * weights.length && s[0].length == getStateCount()
+                && (s[0].length == 0 || s[0][0].length == weights[0].getN() * weights[0].getM())) {
+            return s;
+        }
+        synchronized (this) {
+            if (states != s) {
+                return states;
+            }
+            s = new double[2 * weights.length][][];
+            for (int i = 0; i < weights.length; i++) {
+                if (!weights[i].isContiguous()) {
+                    throw new IllegalArgumentException("Weights of layer " + i + " must be contiguous");
+                }
+                s[2 * i] = new double[getStateCount()][weights[i].getN() * weights[i].getM()];
+                s[2 * i + 1] = new double[getStateCount()][biases[i].getN()];
+            }
+            states = s;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.optimizer;
+
+/**
+ * Represents RMSProp. Every parameter keeps a decaying average of its squared
+ * gradients and the step is divided by its root: s = decay * s + (1 - decay) *
+ * g^2, p = p - learningRate * g / (sqrt(s) + epsilon). Parameters with large
+ * gradients take smaller steps. Usually needs a much smaller learning rate
+ * than gradient descent, e.g. 0.001.
+ *
+ * @author ChriZ98
+ */
+public class RMSPropOptimizer extends Optimizer {
+
+    private final double decay;
+    private final double epsilon;
+
+    /**
+     * Initializes the optimizer with a decay of 0.9 and an epsilon of 1e-8.
+     */
+    public RMSPropOptimizer() {
+        this(0.9, 1e-8);
+    }
+
+    /**
+     * Initializes the optimizer.
+     *
+     * @param decay fraction of the average kept every step
+     * @param epsilon small value preventing division by zero
+     */
+    public RMSPropOptimizer(double decay, double epsilon) {
+        this.decay = decay;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Changes the parameters of one weight matrix or bias vector.
+     *
+     * @param p parameters
+     * @param pOff index of the first parameter
+     * @param g summed gradients of the parameters
+     * @param gOff index of the first gradient
+     * @param length number of parameters
+     * @param state averages of the squared gradients
+     * @param learningRate learning rate
+     * @param scale factor turning the summed gradients into the average
+     * @param step not needed
+     */
+    @Override
+    protected void update(double[] p, int pOff, double[] g, int gOff, int length, double[][] state, double learningRate, double scale, int step) {
+        double[] s = state[0];
+        for (int k = 0; k < length; k++) {
+            double gk = scale * g[gOff + k];
+            s[k] = decay * s[k] + (1 - decay) * gk * gk;
+            p[pOff + k] -= learningRate * gk / (Math.sqrt(s[k]) + epsilon);
+        }
+    }
+
+    /**
+     * Gets the number of buffers needed for every parameter.
+     *
+     * @return 1 for the average of the squared gradients
+     */
+    @Override
+    protected int getStateCount() {
+        return 1;
+    }
+}
@@ -30,19 +30,51 @@ public class L1Regularization extends Regularization {
      */
     @Override
     public Matrix calculate(Matrix weights, double learningRate, double lambda, int n) {
+        return regularize(weights, new Matrix(weights.getN(), weights.getM()), learningRate, lambda, n);
+    }
+
+    /**
+     * Applies the specified regularization directly on the given weights.
+     *
+     * @param weights current weights of neural network
+     * @param learningRate the learning rate used in training the network
+     * @param lambda the lambda that affects how intense the changes to the
+     * weights are
+     * @param n count of training data used for training
+     * @return regularised weights, the same matrix that was passed
+     */
+    @Override
+    public Matrix calculateInPlace(Matrix weights, double learningRate, double lambda, int n) {
+        return regularize(weights, weights, learningRate, lambda, n);
+    }
+
+    /**
+     * Moves every weight towards zero and writes the result into a destination
+     * matrix.
+     *
+     * @param weights current weights of neural network
+     * @param C destination matrix, may be the weights
+     * @param learningRate the learning rate used in training the network
+     * @param lambda the lambda that affects how intense the changes to the
+     * weights are
+     * @param n count of training data used for training
+     * @return destination matrix
+     */
+    private Matrix regularize(Matrix weights, Matrix C, double learningRate, double lambda, int n) {
         double factor = (learningRate * lambda) / n;
-        double[][] C = new double[weights.getN()][weights.getM()];
-        double[][] A = weights.getArray();
+        double[] c = C.getData();
+        double[] a = weights.getData();
         for (int i = 0; i < weights.getN(); i++) {
+            int row = weights.getOffset() + i * weights.getStride(), cRow = C.getOffset() + i * C.getStride();
             for (int j = 0; j < weights.getM(); j++) {
-                if (A[i][j] < 0) {
-                    C[i][j] = A[i][j] + factor;
+                if (a[row + j] < 0) {
+                    c[cRow + j] = a[row + j] + factor;
                 } else {
-                    C[i][j] = A[i][j] - factor;
+                    c[cRow + j] = a[row + j] - factor;
                 }
             }
         }
-        return new Matrix(C);
+        return C;
     }
 
 }
@@ -32,4 +32,37 @@ public class L2Regularization extends Regularization {
         return weights.mulSca(1.0 - ((lambda * learningRate) / n));
     }
 
+    /**
+     * Applies the specified regularization directly on the given weights.
+     *
+     * @param weights current weights of neural network
+     * @param learningRate the learning rate used in training the network
+     * @param lambda the lambda that affects how intense the changes to the
+     * weights are
+     * @param n count of training data used for training
+     * @return regularised weights, the same matrix that was passed
+     */
+    @Override
+    public Matrix calculateInPlace(Matrix weights, double learningRate, double lambda, int n) {
+        return weights.mulScaInPlace(1.0 - ((lambda * learningRate) / n));
+    }
+
+    /**
+     * Applies the specified regularization several times directly on the
+     * given weights. The factors of all times are combined, so the weights
+     * are only scaled once.
+     *
+     * @param weights current weights of neural network
+     * @param learningRate the learning rate used in training the network
+     * @param lambda the lambda that affects how intense the changes to the
+     * weights are
+     * @param n count of training data used for training
+     * @param times number of times the regularization is applied
+     * @return regularised weights, the same matrix that was passed
+     */
+    @Override
+    public Matrix calculateInPlace(Matrix weights, double learningRate, double lambda, int n, int times) {
+        return weights.mulScaInPlace(Math.pow(1.0 - ((lambda * learningRate) / n), times));
+    }
+
 }
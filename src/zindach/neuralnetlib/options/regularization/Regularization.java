@@ -25,4 +25,35 @@ public abstract class Regularization {
      * @return regularised weight array
      */
     public abstract Matrix calculate(Matrix weights, double learningRate, double lambda, int n);
+
+    /**
+     * Applies the specified regularization directly on the given weights.
+     *
+     * @param weights current weights of neural network
+     * @param learningRate the learning rate used in training the network
+     * @param lambda the lambda that affects how intense the changes to the
+     * weights are
+     * @param n count of training data used for training
+     * @return regularised weights, the same matrix that was passed
+     */
+    public abstract Matrix calculateInPlace(Matrix weights, double learningRate, double lambda, int n);
+
+    /**
+     * Applies the specified regularization several times directly on the
+     * given weights, as if it was applied once for each of several batches.
+     *
+     * @param weights current weights of neural network
+     * @param learningRate the learning rate used in training the network
+     * @param lambda the lambda that affects how intense the changes to the
+     * weights are
+     * @param n count of training data used for training
+     * @param times number of times the regularization is applied
+     * @return regularised weights, the same matrix that was passed
+     */
+    public Matrix calculateInPlace(Matrix weights, double learningRate, double lambda, int n, int times) {
+        for (int t = 0; t < times; t++) {
+            calculateInPlace(weights, learningRate, lambda, n);
+        }
+        return weights;
+    }
 }
@@ -0,0 +1,28 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.schedule;
+
+/**
+ * Represents a constant learning rate. Every epoch uses the learning rate
+ * passed to the trainer.
+ *
+ * @author ChriZ98
+ */
+public class ConstantSchedule extends LearningRateSchedule {
+
+    /**
+     * Calculates the learning rate of an epoch.
+     *
+     * @param learningRate learning rate passed to the trainer
+     * @param epoch current epoch starting at 0
+     * @param epochs total number of epochs
+     * @return learningRate
+     */
+    @Override
+    public double getLearningRate(double learningRate, int epoch, int epochs) {
+        return learningRate;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.schedule;
+
+/**
+ * Represents a learning rate that follows half a cosine wave from the learning
+ * rate passed to the trainer in the first epoch down to a minimum in the last
+ * epoch: rate = min + (learningRate - min) * (1 + cos(pi * epoch / (epochs -
+ * 1))) / 2.
+ *
+ * @author ChriZ98
+ */
+public class CosineSchedule extends LearningRateSchedule {
+
+    private final double minRate;
+
+    /**
+     * Initializes the schedule with a minimum of 0.
+     */
+    public CosineSchedule() {
+        this(0);
+    }
+
+    /**
+     * Initializes the schedule.
+     *
+     * @param minRate learning rate of the last epoch
+     */
+    public CosineSchedule(double minRate) {
+        this.minRate = minRate;
+    }
+
+    /**
+     * Calculates the learning rate of an epoch.
+     *
+     * @param learningRate learning rate passed to the trainer
+     * @param epoch current epoch starting at 0
+     * @param epochs total number of epochs
+     * @return learning rate of the epoch
+     */
+    @Override
+    public double getLearningRate(double learningRate, int epoch, int epochs) {
+        double progress = epochs > 1 ? (double) epoch / (epochs - 1) : 0;
+        return minRate + (learningRate - minRate) * (1 + Math.cos(Math.PI * progress)) / 2;
+    }
+}
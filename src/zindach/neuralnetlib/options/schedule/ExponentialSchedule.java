@@ -0,0 +1,39 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.schedule;
+
+/**
+ * Represents a learning rate that decays by the same factor every epoch:
+ * rate = learningRate * decay^epoch.
+ *
+ * @author ChriZ98
+ */
+public class ExponentialSchedule extends LearningRateSchedule {
+
+    private final double decay;
+
+    /**
+     * Initializes the schedule.
+     *
+     * @param decay factor applied every epoch, e.g. 0.9
+     */
+    public ExponentialSchedule(double decay) {
+        this.decay = decay;
+    }
+
+    /**
+     * Calculates the learning rate of an epoch.
+     *
+     * @param learningRate learning rate passed to the trainer
+     * @param epoch current epoch starting at 0
+     * @param epochs total number of epochs
+     * @return learning rate of the epoch
+     */
+    @Override
+    public double getLearningRate(double learningRate, int epoch, int epochs) {
+        return learningRate * Math.pow(decay, epoch);
+    }
+}
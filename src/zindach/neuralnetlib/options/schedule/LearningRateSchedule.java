@@ -0,0 +1,26 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.schedule;
+
+/**
+ * An abstract superclass for learning rate schedules. A schedule changes the
+ * learning rate from epoch to epoch, usually starting large and decreasing so
+ * that the weights settle in a minimum.
+ *
+ * @author ChriZ98
+ */
+public abstract class LearningRateSchedule {
+
+    /**
+     * Calculates the learning rate of an epoch.
+     *
+     * @param learningRate learning rate passed to the trainer
+     * @param epoch current epoch starting at 0
+     * @param epochs total number of epochs
+     * @return learning rate of the epoch
+     */
+    public abstract double getLearningRate(double learningRate, int epoch, int epochs);
+}
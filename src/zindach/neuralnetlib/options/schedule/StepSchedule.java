@@ -0,0 +1,46 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.schedule;
+
+/**
+ * Represents a learning rate that is multiplied by a factor every few epochs:
+ * rate = learningRate * factor^(epoch / stepSize).
+ *
+ * @author ChriZ98
+ */
+public class StepSchedule extends LearningRateSchedule {
+
+    private final int stepSize;
+    private final double factor;
+
+    /**
+     * Initializes the schedule.
+     *
+     * @param stepSize number of epochs between two changes
+     * @param factor factor applied at every change, e.g. 0.5
+     * @throws IllegalArgumentException if the step size is less than 1
+     */
+    public StepSchedule(int stepSize, double factor) {
+        if (stepSize < 1) {
+            throw new IllegalArgumentException("Step size must be positive: " + stepSize);
+        }
+        this.stepSize = stepSize;
+        this.factor = factor;
+    }
+
+    /**
+     * Calculates the learning rate of an epoch.
+     *
+     * @param learningRate learning rate passed to the trainer
+     * @param epoch current epoch starting at 0
+     * @param epochs total number of epochs
+     * @return learning rate of the epoch
+     */
+    @Override
+    public double getLearningRate(double learningRate, int epoch, int epochs) {
+        return learningRate * Math.pow(factor, epoch / stepSize);
+    }
+}
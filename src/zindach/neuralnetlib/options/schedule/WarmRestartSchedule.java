@@ -0,0 +1,63 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.schedule;
+
+/**
+ * Represents cosine annealing with warm restarts. The learning rate follows
+ * half a cosine wave down to a minimum over a period of epochs and then jumps
+ * back to the learning rate passed to the trainer. Every period is longer than
+ * the one before by a factor. The restarts help to leave poor minima.
+ *
+ * @author ChriZ98
+ */
+public class WarmRestartSchedule extends LearningRateSchedule {
+
+    private final int period;
+    private final int multiplier;
+    private final double minRate;
+
+    /**
+     * Initializes the schedule.
+     *
+     * @param period number of epochs of the first period
+     * @param multiplier factor by which every period is longer than the one
+     * before, 1 for periods of equal length
+     * @param minRate learning rate at the end of every period
+     * @throws IllegalArgumentException if the period or the multiplier is
+     * less than 1
+     */
+    public WarmRestartSchedule(int period, int multiplier, double minRate) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("Multiplier must be positive: " + multiplier);
+        }
+        this.period = period;
+        this.multiplier = multiplier;
+        this.minRate = minRate;
+    }
+
+    /**
+     * Calculates the learning rate of an epoch.
+     *
+     * @param learningRate learning rate passed to the trainer
+     * @param epoch current epoch starting at 0
+     * @param epochs total number of epochs
+     * @return learning rate of the epoch
+     */
+    @Override
+    public double getLearningRate(double learningRate, int epoch, int epochs) {
+        long length = period;
+        long start = 0;
+        while (epoch >= start + length) {
+            start += length;
+            length *= multiplier;
+        }
+        double progress = (double) (epoch - start) / length;
+        return minRate + (learningRate - minRate) * (1 + Math.cos(Math.PI * progress)) / 2;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import zindach.mathlib.algebra.Vector;
+import zindach.neuralnetlib.net.NeuralNetwork;
+
+/**
+ * Serves a neural network over a plain text protocol on a local TCP port.
+ * Every line sent by a client holds the input values separated by spaces or
+ * commas and is answered by a line with the output values separated by
+ * spaces. The line "STATS" is answered with the statistics of the server.
+ * Invalid requests are answered with a line starting with "ERROR". Requests of
+ * all connections are collected by a micro batcher and calculated in batches.
+ *
+ * @author ChriZ98
+ */
+public class InferenceServer implements AutoCloseable {
+
+    private final MicroBatcher batcher;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Initializes the server and starts accepting connections on the loopback
+     * address.
+     *
+     * @param net network used for inference. The weights must not be changed
+     * while the server is running
+     * @param port port to listen on, 0 for any free port
+     * @param maxBatchSize maximum number of requests calculated at once
+     * @param maxLatencyMicros maximum time in microseconds a request waits for
+     * further requests
+     * @throws IOException if the port cannot be opened
+     */
+    public InferenceServer(NeuralNetwork net, int port, int maxBatchSize, long maxLatencyMicros) throws IOException {
+        this.batcher = new MicroBatcher(net, maxBatchSize, maxLatencyMicros);
+        try {
+            this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException ex) {
+            batcher.close();
+            throw ex;
+        }
+        this.connections = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "InferenceConnection");
+            t.setDaemon(true);
+            return t;
+        });
+        this.acceptor = new Thread(this::accept, "InferenceAcceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    /**
+     * Accepts connections until the server socket is closed.
+     */
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                sockets.add(socket);
+                connections.execute(() -> serve(socket));
+            }
+        } catch (IOException ex) {
+        }
+    }
+
+    /**
+     * Answers the requests of one connection until the client closes it.
+     *
+     * @param socket connection to the client
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+                BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter writer = new PrintWriter(s.getOutputStream(), true)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.println(answer(line.trim()));
+            }
+        } catch (IOException ex) {
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /**
+     * Calculates the answer for one request line.
+     *
+     * @param line request line
+     * @return answer line
+     */
+    private String answer(String line) {
+        if (line.equalsIgnoreCase("STATS")) {
+            return batcher.getStats().toString();
+        }
+        try {
+            String[] tokens = line.split("[\\s,]+");
+            double[] values = new double[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                values[i] = Double.parseDouble(tokens[i]);
+            }
+            double[] result = batcher.submit(new Vector(values)).get().getArray();
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < result.length; i++) {
+                if (i > 0) {
+                    sb.append(' ');
+                }
+                sb.append(result[i]);
+            }
+            return sb.toString();
+        } catch (IllegalArgumentException | IllegalStateException | ExecutionException ex) {
+            return "ERROR " + ex.getMessage();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return "ERROR interrupted";
+        }
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return local port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the statistics of the server.
+     *
+     * @return statistics
+     */
+    public InferenceStats getStats() {
+        return batcher.getStats();
+    }
+
+    /**
+     * Stops accepting connections, closes all open connections and calculates
+     * the requests already queued.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        connections.shutdownNow();
+        batcher.close();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.server;
+
+/**
+ * Statistics of a micro batcher. Counts requests and batches and records the
+ * latency of every request from submission until its result is available.
+ * Latencies are collected in buckets of powers of two microseconds, so
+ * percentiles are approximated by the upper bound of their bucket.
+ *
+ * @author ChriZ98
+ */
+public class InferenceStats {
+
+    private final long startNanos = System.nanoTime();
+    private final long[] buckets = new long[64];
+    private long requests;
+    private long batches;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    /**
+     * Records a batch that was calculated.
+     *
+     * @param size number of requests in the batch
+     */
+    synchronized void recordBatch(int size) {
+        batches++;
+        requests += size;
+    }
+
+    /**
+     * Records the latency of one request.
+     *
+     * @param latencyNanos time from submission until completion
+     */
+    synchronized void recordLatency(long latencyNanos) {
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+        buckets[64 - Long.numberOfLeadingZeros(latencyNanos / 1000)]++;
+    }
+
+    /**
+     * Gets the number of requests calculated.
+     *
+     * @return number of requests
+     */
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Gets the number of batches calculated.
+     *
+     * @return number of batches
+     */
+    public synchronized long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Gets the average number of requests per batch.
+     *
+     * @return average batch size
+     */
+    public synchronized double getAverageBatchSize() {
+        return batches == 0 ? 0 : (double) requests / batches;
+    }
+
+    /**
+     * Gets the number of requests calculated per second since the start.
+     *
+     * @return throughput in requests per second
+     */
+    public synchronized double getThroughput() {
+        return requests / ((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /**
+     * Gets the average latency of all requests.
+     *
+     * @return average latency in milliseconds
+     */
+    public synchronized double getAverageLatency() {
+        return requests == 0 ? 0 : totalLatencyNanos / 1e6 / requests;
+    }
+
+    /**
+     * Gets the maximum latency of all requests.
+     *
+     * @return maximum latency in milliseconds
+     */
+    public synchronized double getMaxLatency() {
+        return maxLatencyNanos / 1e6;
+    }
+
+    /**
+     * Gets an upper bound of the latency below which the given fraction of
+     * all requests completed.
+     *
+     * @param p fraction between 0 and 1, e.g. 0.99
+     * @return latency percentile in milliseconds
+     */
+    public synchronized double getLatencyPercentile(double p) {
+        long count = 0;
+        for (long b : buckets) {
+            count += b;
+        }
+        long rank = (long) Math.ceil(p * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min((1L << i) / 1000.0, getMaxLatency());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Formats the statistics in one line.
+     *
+     * @return statistics as text
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("requests=%d batches=%d avgBatch=%.2f throughput=%.1f/s latency avg=%.3fms p99=%.3fms max=%.3fms",
+                requests, batches, getAverageBatchSize(), getThroughput(),
+                getAverageLatency(), getLatencyPercentile(0.99), getMaxLatency());
+    }
+}
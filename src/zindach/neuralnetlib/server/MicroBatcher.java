@@ -0,0 +1,204 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.server;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.Vector;
+import zindach.neuralnetlib.net.NetworkWorkspace;
+import zindach.neuralnetlib.net.NeuralNetwork;
+
+/**
+ * Collects single inference requests and calculates them in batches. A worker
+ * thread waits for the first request and then collects further requests until
+ * the batch is full or the maximum latency since the first request has
+ * passed. The whole batch is fed forward at once and every request gets its
+ * column of the output. Batching turns many matrix vector products into one
+ * matrix product, which is much faster per request.
+ *
+ * @author ChriZ98
+ */
+public class MicroBatcher implements AutoCloseable {
+
+    private final NeuralNetwork net;
+    private final int inputs;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final InferenceStats stats = new InferenceStats();
+    private final Thread worker;
+    private final Object lock = new Object();
+    private boolean closed;
+
+    /**
+     * Initializes the batcher and starts its worker thread.
+     *
+     * @param net network used for inference. The weights must not be changed
+     * while the batcher is running
+     * @param maxBatchSize maximum number of requests calculated at once
+     * @param maxLatencyMicros maximum time in microseconds the first request
+     * of a batch waits for further requests
+     * @throws IllegalArgumentException if the batch size is not positive or
+     * the latency is negative or too large
+     */
+    public MicroBatcher(NeuralNetwork net, int maxBatchSize, long maxLatencyMicros) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Maximum batch size must be positive: " + maxBatchSize);
+        }
+        if (maxLatencyMicros < 0 || maxLatencyMicros > Long.MAX_VALUE / 1000) {
+            throw new IllegalArgumentException("Maximum latency out of range: " + maxLatencyMicros);
+        }
+        this.net = net;
+        this.inputs = net.getWeights()[0].getM();
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = maxLatencyMicros * 1000;
+        this.worker = new Thread(this::run, "MicroBatcher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Submits an input vector for inference.
+     *
+     * @param in input vector
+     * @return future completed with the output vector
+     */
+    public CompletableFuture<Vector> submit(Vector in) {
+        if (in.getN() != inputs) {
+            throw new IllegalArgumentException("Input of size " + in.getN() + " does not match network input of size " + inputs);
+        }
+        Request request = new Request(in);
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("MicroBatcher is closed");
+            }
+            queue.add(request);
+        }
+        return request.future;
+    }
+
+    /**
+     * Collects and calculates batches until the batcher is closed and all
+     * requests are calculated.
+     */
+    private void run() {
+        NetworkWorkspace ws = new NetworkWorkspace(net, maxBatchSize);
+        Matrix in = new Matrix(inputs, maxBatchSize);
+        Request[] batch = new Request[maxBatchSize];
+        try {
+            while (true) {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    synchronized (lock) {
+                        if (closed && queue.isEmpty()) {
+                            return;
+                        }
+                    }
+                    continue;
+                }
+                batch[0] = first;
+                int count = 1;
+                long deadline = first.submitted + maxLatencyNanos;
+                while (count < maxBatchSize) {
+                    long wait = deadline - System.nanoTime();
+                    Request request = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (request == null) {
+                        break;
+                    }
+                    batch[count++] = request;
+                }
+                calculateBatch(batch, count, in, ws);
+            }
+        } catch (InterruptedException ex) {
+            Request request;
+            while ((request = queue.poll()) != null) {
+                request.future.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Copies the inputs of a batch into the columns of a matrix, feeds them
+     * forward and completes the requests with their output columns.
+     *
+     * @param batch requests of the batch
+     * @param count number of requests in the batch
+     * @param in matrix for the inputs
+     * @param ws workspace for the feedforward
+     */
+    private void calculateBatch(Request[] batch, int count, Matrix in, NetworkWorkspace ws) {
+        try {
+            Matrix B = in.viewCols(0, count);
+            double[] b = B.getData();
+            for (int j = 0; j < count; j++) {
+                double[] v = batch[j].in.getArray();
+                for (int i = 0; i < inputs; i++) {
+                    b[B.getOffset() + i * B.getStride() + j] = v[i];
+                }
+            }
+            Matrix out = net.feedforward(B, ws);
+            double[] o = out.getData();
+            stats.recordBatch(count);
+            for (int j = 0; j < count; j++) {
+                double[] result = new double[out.getN()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = o[out.getOffset() + i * out.getStride() + j];
+                }
+                stats.recordLatency(System.nanoTime() - batch[j].submitted);
+                batch[j].future.complete(new Vector(result));
+            }
+        } catch (RuntimeException ex) {
+            for (int j = 0; j < count; j++) {
+                batch[j].future.completeExceptionally(ex);
+            }
+        }
+        for (int j = 0; j < count; j++) {
+            batch[j] = null;
+        }
+    }
+
+    /**
+     * Gets the statistics of the batcher.
+     *
+     * @return statistics
+     */
+    public InferenceStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Stops accepting requests, calculates all queued requests and waits for
+     * the worker thread to finish.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Single inference request waiting in the queue.
+     */
+    private static class Request {
+
+        private final Vector in;
+        private final long submitted = System.nanoTime();
+        private final CompletableFuture<Vector> future = new CompletableFuture<>();
+
+        Request(Vector in) {
+            this.in = in;
+        }
+    }
+}
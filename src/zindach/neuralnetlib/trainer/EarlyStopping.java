@@ -0,0 +1,149 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.trainer;
+
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.Vector;
+import zindach.neuralnetlib.net.NeuralNetwork;
+
+/**
+ * Stops training as soon as the cost on the validation data stops improving.
+ * After every epoch the cost is compared to the best cost so far. If it did
+ * not improve by a minimum amount for a number of epochs in a row, training is
+ * stopped. The weights of the best epoch are kept in a copy and can be
+ * restored when training stops. The validation data must not be the test
+ * data, otherwise the test results are biased by the choice of the epoch.
+ *
+ * @author ChriZ98
+ */
+public class EarlyStopping {
+
+    private final int patience;
+    private final double minDelta;
+    private final boolean restoreBestWeights;
+    private Matrix[] bestWeights;
+    private Vector[] bestBiases;
+    private double bestCost;
+    private int bestEpoch;
+    private int wait;
+
+    /**
+     * Initializes early stopping that restores the best weights and counts
+     * every improvement.
+     *
+     * @param patience number of epochs without improvement before training
+     * is stopped
+     */
+    public EarlyStopping(int patience) {
+        this(patience, 0, true);
+    }
+
+    /**
+     * Initializes early stopping.
+     *
+     * @param patience number of epochs without improvement before training
+     * is stopped
+     * @param minDelta minimum decrease of the cost that counts as improvement
+     * @param restoreBestWeights if true the weights of the best epoch are
+     * restored when training stops
+     */
+    public EarlyStopping(int patience, double minDelta, boolean restoreBestWeights) {
+        this.patience = patience;
+        this.minDelta = minDelta;
+        this.restoreBestWeights = restoreBestWeights;
+        reset();
+    }
+
+    /**
+     * Forgets the best cost. Called at the start of training.
+     */
+    public void reset() {
+        bestCost = Double.POSITIVE_INFINITY;
+        bestEpoch = -1;
+        wait = 0;
+    }
+
+    /**
+     * Records the cost of an epoch and remembers the weights if the cost is
+     * the best so far.
+     *
+     * @param net network being trained
+     * @param cost cost on the validation data after the epoch
+     * @param epoch current epoch starting at 0
+     * @return true if training should stop
+     */
+    public boolean update(NeuralNetwork net, double cost, int epoch) {
+        if (cost < bestCost - minDelta) {
+            bestCost = cost;
+            bestEpoch = epoch;
+            wait = 0;
+            if (restoreBestWeights) {
+                saveWeights(net);
+            }
+            return false;
+        }
+        wait++;
+        return wait >= patience;
+    }
+
+    /**
+     * Restores the weights of the best epoch if enabled and recorded.
+     *
+     * @param net network being trained
+     */
+    public void restore(NeuralNetwork net) {
+        if (!restoreBestWeights || bestEpoch < 0) {
+            return;
+        }
+        Matrix[] weights = net.getWeights();
+        Vector[] biases = net.getBiases();
+        for (int i = 0; i < weights.length; i++) {
+            bestWeights[i].copyInto(weights[i]);
+            bestBiases[i].copyInto(biases[i]);
+        }
+    }
+
+    /**
+     * Copies the weights and biases of the network. The copies are allocated
+     * once and reused.
+     *
+     * @param net network being trained
+     */
+    private void saveWeights(NeuralNetwork net) {
+        Matrix[] weights = net.getWeights();
+        Vector[] biases = net.getBiases();
+        if (bestWeights == null || bestWeights.length != weights.length) {
+            bestWeights = new Matrix[weights.length];
+            bestBiases = new Vector[biases.length];
+            for (int i = 0; i < weights.length; i++) {
+                bestWeights[i] = new Matrix(weights[i].getN(), weights[i].getM());
+                bestBiases[i] = new Vector(biases[i].getN());
+            }
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i].copyInto(bestWeights[i]);
+            biases[i].copyInto(bestBiases[i]);
+        }
+    }
+
+    /**
+     * Gets the best cost so far.
+     *
+     * @return best cost on the validation data
+     */
+    public double getBestCost() {
+        return bestCost;
+    }
+
+    /**
+     * Gets the epoch with the best cost so far.
+     *
+     * @return best epoch starting at 0 or -1 if no epoch was recorded
+     */
+    public int getBestEpoch() {
+        return bestEpoch;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.trainer;
+
+import zindach.mathlib.algebra.Matrix;
+
+/**
+ * Result of the evaluation of a network on a data set. Holds the cost, the
+ * accuracy and a confusion matrix. The class of an example is the index of its
+ * largest desired output, the predicted class is the index of the largest
+ * calculated output.
+ *
+ * @author ChriZ98
+ */
+public class Evaluation {
+
+    private final int[][] confusion;
+    private int total;
+    private double costSum;
+
+    /**
+     * Initializes an empty evaluation.
+     *
+     * @param classes number of outputs of the network
+     */
+    Evaluation(int classes) {
+        this.confusion = new int[classes][classes];
+    }
+
+    /**
+     * Adds the results of a part of the data set.
+     *
+     * @param result calculated outputs of the part
+     * @param dataOut desired outputs of the part
+     * @param costSum summed cost of the part
+     */
+    synchronized void add(Matrix result, Matrix dataOut, double costSum) {
+        for (int j = 0; j < dataOut.getM(); j++) {
+            confusion[argmax(dataOut, j)][argmax(result, j)]++;
+        }
+        this.total += dataOut.getM();
+        this.costSum += costSum;
+    }
+
+    /**
+     * Gets the index of the largest entry of a column.
+     *
+     * @param M matrix to search
+     * @param j index of the column
+     * @return row of the largest entry
+     */
+    private static int argmax(Matrix M, int j) {
+        double[] a = M.getData();
+        int col = M.getOffset() + j, stride = M.getStride();
+        int max = 0;
+        for (int i = 1; i < M.getN(); i++) {
+            if (a[col + i * stride] > a[col + max * stride]) {
+                max = i;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Gets the percentage of examples calculated correctly.
+     *
+     * @return accuracy in percent
+     */
+    public double getAccuracy() {
+        int correct = 0;
+        for (int i = 0; i < confusion.length; i++) {
+            correct += confusion[i][i];
+        }
+        return total == 0 ? 0 : (double) correct / total * 100.0;
+    }
+
+    /**
+     * Gets the average cost of all examples.
+     *
+     * @return cost evaluated
+     */
+    public double getCost() {
+        return total == 0 ? 0 : costSum / total;
+    }
+
+    /**
+     * Gets the number of examples evaluated.
+     *
+     * @return number of examples
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Gets the number of examples of every class.
+     *
+     * @return examples per desired class
+     */
+    public int[] getClassCounts() {
+        int[] counts = new int[confusion.length];
+        for (int i = 0; i < confusion.length; i++) {
+            for (int j = 0; j < confusion.length; j++) {
+                counts[i] += confusion[i][j];
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the number of examples of every class that were calculated
+     * correctly.
+     *
+     * @return correct examples per desired class
+     */
+    public int[] getCorrectCounts() {
+        int[] counts = new int[confusion.length];
+        for (int i = 0; i < confusion.length; i++) {
+            counts[i] = confusion[i][i];
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the confusion matrix. The entry in row i and column j counts the
+     * examples of class i that were predicted as class j.
+     *
+     * @return confusion matrix
+     */
+    public int[][] getConfusionMatrix() {
+        return confusion;
+    }
+
+    /**
+     * Formats the confusion matrix with one row per desired class.
+     *
+     * @return confusion matrix as text
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int[] row : confusion) {
+            for (int count : row) {
+                sb.append(String.format("%6d", count));
+            }
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,27 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.trainer;
+
+/**
+ * Receives the results of epochs evaluated in the background.
+ *
+ * @author ChriZ98
+ */
+@FunctionalInterface
+public interface EvaluationListener {
+
+    /**
+     * Called on the evaluation thread after an epoch was evaluated. Epochs are
+     * reported in order.
+     *
+     * @param epoch evaluated epoch starting at 0
+     * @param training accuracy and cost on the training data of the weights at
+     * the end of the epoch
+     * @param test accuracy and cost on the test data of the weights at the end
+     * of the epoch
+     */
+    void evaluated(int epoch, Evaluation training, Evaluation test);
+}
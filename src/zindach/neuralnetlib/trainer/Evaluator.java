@@ -0,0 +1,106 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.trainer;
+
+import java.util.concurrent.ForkJoinPool;
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.OffHeapMatrix;
+import zindach.neuralnetlib.net.NeuralNetwork;
+import zindach.neuralnetlib.options.cost.CostFunction;
+
+/**
+ * Evaluates a network on a data set. Accuracy, cost and confusion matrix are
+ * calculated from the same feedforward, so the data set is only fed forward
+ * once. The data is fed forward in chunks that are calculated in parallel on a
+ * fork join pool. Data sets off the heap are copied onto the heap part by
+ * part.
+ *
+ * @author ChriZ98
+ */
+public class Evaluator {
+
+    private final NeuralNetwork net;
+    private final CostFunction costFunction;
+    private final ForkJoinPool pool;
+
+    /**
+     * Initializes the evaluator on the common fork join pool.
+     *
+     * @param net network to evaluate
+     * @param costFunction cost function to evaluate, may be null if only the
+     * accuracy is needed
+     */
+    public Evaluator(NeuralNetwork net, CostFunction costFunction) {
+        this(net, costFunction, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Initializes the evaluator.
+     *
+     * @param net network to evaluate
+     * @param costFunction cost function to evaluate, may be null if only the
+     * accuracy is needed
+     * @param pool pool the chunks are calculated on
+     */
+    public Evaluator(NeuralNetwork net, CostFunction costFunction, ForkJoinPool pool) {
+        this.net = net;
+        this.costFunction = costFunction;
+        this.pool = pool;
+    }
+
+    /**
+     * Evaluates the network on a data set.
+     *
+     * @param dataIn input data, every column holds one example
+     * @param dataOut desired output data
+     * @return evaluation of the data set
+     */
+    public Evaluation evaluate(Matrix dataIn, Matrix dataOut) {
+        Evaluation evaluation = new Evaluation(dataOut.getN());
+        add(evaluation, dataIn, dataOut);
+        return evaluation;
+    }
+
+    /**
+     * Evaluates the network on a data set stored off the heap. The data is
+     * copied onto the heap in parts of several chunks, so only one part has to
+     * fit into the heap at a time.
+     *
+     * @param dataIn input data, every column holds one example
+     * @param dataOut desired output data
+     * @return evaluation of the data set
+     */
+    public Evaluation evaluate(OffHeapMatrix dataIn, OffHeapMatrix dataOut) {
+        Evaluation evaluation = new Evaluation(dataOut.getN());
+        int size = dataIn.getM();
+        int partSize = Math.min(size, 4 * pool.getParallelism() * NeuralNetwork.EVALUATION_CHUNK_SIZE);
+        Matrix partIn = new Matrix(dataIn.getN(), partSize);
+        Matrix partOut = new Matrix(dataOut.getN(), partSize);
+        for (int j = 0; j < size; j += partSize) {
+            int cols = Math.min(partSize, size - j);
+            Matrix in = dataIn.copyColsInto(j, partIn.viewCols(0, cols));
+            Matrix out = dataOut.copyColsInto(j, partOut.viewCols(0, cols));
+            add(evaluation, in, out);
+        }
+        return evaluation;
+    }
+
+    /**
+     * Feeds a data set forward and adds the results to an evaluation.
+     *
+     * @param evaluation evaluation to add to
+     * @param dataIn input data, every column holds one example
+     * @param dataOut desired output data
+     */
+    private void add(Evaluation evaluation, Matrix dataIn, Matrix dataOut) {
+        net.sumChunks(dataIn, dataOut, (ws, out) -> {
+            Matrix result = ws.getOutput();
+            double cost = costFunction == null ? 0 : costFunction.calculateSum(result, ws.getOutputValues(), out);
+            evaluation.add(result, out, cost);
+            return 0;
+        }, pool);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.trainer;
+
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import zindach.neuralnetlib.net.NetworkWorkspace;
+import zindach.neuralnetlib.net.NeuralNetwork;
+import zindach.neuralnetlib.options.cost.CostFunction;
+import zindach.neuralnetlib.options.regularization.Regularization;
+
+/**
+ * Trains a neural network using asynchronous stochastic gradient descent
+ * without locks, known as Hogwild. Every thread takes the next batch of the
+ * epoch, loads it into its own slot, backpropagates it into its own workspace
+ * and changes the shared weights right away. Threads never wait for each
+ * other until the epoch ends, so a batch may be calculated with weights that
+ * other threads are changing at the same time and some updates may partly
+ * overwrite each other. The number of updates made by other threads while a
+ * batch was calculated is its staleness, and the learning rate of the batch
+ * is divided by the staleness plus one, because stale gradients at the full
+ * learning rate let the accuracy drop with many threads. The buffers of the
+ * optimizer, like the averages of Adam, are changed by all threads without
+ * synchronization just like the weights. Only the step counter of the
+ * optimizer is atomic, so every update gets its own step. The regularization
+ * changes every weight, so it is not applied by the threads but by the
+ * training thread once per epoch, as often as the batches of the epoch would
+ * have applied it. For sparse inputs the updates rarely collide and the
+ * threads scale without synchronization. With one thread no batch is stale
+ * and the trainer behaves exactly like StochasticGradientDescentTrainer.
+ *
+ * @author ChriZ98
+ */
+public class HogwildTrainer extends Trainer {
+
+    private NetworkWorkspace[] workspaces = new NetworkWorkspace[0];
+
+    /**
+     * Initializes the Trainer.
+     *
+     * @param net network to be trained
+     * @param costFunction cost function to minimize
+     * @param regularization regularization applied on weights
+     */
+    public HogwildTrainer(NeuralNetwork net, CostFunction costFunction, Regularization regularization) {
+        super(net, costFunction, regularization);
+    }
+
+    /**
+     * Trains all batches of one epoch. Every thread repeatedly takes the next
+     * batch that was not trained yet until all batches are trained.
+     *
+     * @param batches number of batches of the epoch
+     * @param learningRate learning rate determines how fast the weights in the
+     * network are changed
+     * @param lambda strength of regularization
+     * @param n total size of training data
+     */
+    @Override
+    protected void trainBatches(int batches, double learningRate, double lambda, int n) {
+        int threads = getThreads();
+        if (batches == 0) {
+            return;
+        }
+        if (workspaces.length != threads || workspaces[0].getMaxBatchSize() < getPartSize()) {
+            workspaces = new NetworkWorkspace[threads];
+            for (int k = 0; k < threads; k++) {
+                workspaces[k] = new NetworkWorkspace(net, getPartSize());
+            }
+        }
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger updates = new AtomicInteger();
+        if (threads == 1) {
+            trainBatches(batches, next, updates, 0, workspaces[0], learningRate, lambda, n);
+            return;
+        }
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[threads];
+        for (int k = 0; k < threads; k++) {
+            int slot = k;
+            tasks[k] = ForkJoinTask.adapt(() -> trainBatches(batches, next, updates, slot, workspaces[slot], learningRate, lambda, n));
+        }
+        getPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        regularize(learningRate, lambda, n, batches);
+    }
+
+    /**
+     * Trains batches until no batch is left. Runs on every thread.
+     *
+     * @param batches number of batches of the epoch
+     * @param next index of the next batch shared by all threads
+     * @param updates number of updates of the epoch shared by all threads
+     * @param slot slot the thread loads its batches into
+     * @param ws workspace of the thread
+     * @param learningRate learning rate determines how fast the weights in the
+     * network are changed
+     * @param lambda strength of regularization
+     * @param n total size of training data
+     */
+    private void trainBatches(int batches, AtomicInteger next, AtomicInteger updates, int slot, NetworkWorkspace ws, double learningRate, double lambda, int n) {
+        int j;
+        while ((j = next.getAndIncrement()) < batches) {
+            load(j, slot);
+            trainBatch(slot, ws, updates, learningRate, lambda, n);
+        }
+    }
+
+    /**
+     * Trains one batch of training examples and changes the shared weights of
+     * the neural network without locking. The learning rate is divided by
+     * the number of updates other threads made during the backpropagation
+     * plus one. With more than one thread the regularization is left out and
+     * applied for all batches of the epoch at once.
+     *
+     * @param slot slot of the loaded batch
+     * @param ws workspace of the thread
+     * @param updates number of updates of the epoch shared by all threads
+     * @param learningRate learning rate determines how fast the weights in the
+     * network are changed
+     * @param lambda strength of regularization
+     * @param n total size of training data
+     */
+    private void trainBatch(int slot, NetworkWorkspace ws, AtomicInteger updates, double learningRate, double lambda, int n) {
+        int seen = updates.get();
+        backpropagate(slot, 0, ws);
+        int staleness = updates.getAndIncrement() - seen;
+        if (getThreads() == 1) {
+            applyGradients(ws.getWeightErrors(), ws.getBiasErrors(), learningRate, lambda, n, getBatchSize(slot));
+        } else {
+            updateWeights(ws.getWeightErrors(), ws.getBiasErrors(), learningRate / (staleness + 1), getBatchSize(slot));
+        }
+    }
+}
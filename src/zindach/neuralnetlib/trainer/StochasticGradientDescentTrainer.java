@@ -5,9 +5,10 @@
  */
 package zindach.neuralnetlib.trainer;
 
+import java.util.concurrent.RecursiveAction;
 import zindach.mathlib.algebra.Matrix;
 import zindach.mathlib.algebra.Vector;
-import zindach.neuralnetlib.net.DataUtils;
+import zindach.neuralnetlib.net.NetworkWorkspace;
 import zindach.neuralnetlib.net.NeuralNetwork;
 import zindach.neuralnetlib.options.cost.CostFunction;
 import zindach.neuralnetlib.options.regularization.Regularization;
@@ -17,19 +18,21 @@ import zindach.neuralnetlib.options.regularization.Regularization;
  * descent. The idea is to minimize the specified cost function. That means
  * adapting to the desired outputs of the network. This is achieved by
  * evaluation of the cost after each training batch and changing the weights
- * with respect to the "downhill" direction of the cost function.
+ * with respect to the "downhill" direction of the cost function. With more
+ * than one thread every batch is split into parts of equal size that are
+ * backpropagated in parallel, each into its own workspace. The tasks and
+ * workspaces of the parts are created once and reused for every batch. The
+ * gradients of all parts are summed up and applied once per batch, so the
+ * result matches training on one thread up to rounding. Larger batches scale
+ * better because the parts get larger.
  *
  * @author ChriZ98
  */
-public class StochasticGradientDescentTrainer {
+public class StochasticGradientDescentTrainer extends Trainer {
 
-    private final NeuralNetwork net;
-    private final CostFunction costFunction;
-    private final Regularization regularization;
-    private Vector[] trainingIn;
-    private Vector[] trainingOut;
-    private Vector[] testIn;
-    private Vector[] testOut;
+    private NetworkWorkspace[] workspaces = new NetworkWorkspace[0];
+    private PartTask[] tasks;
+    private BatchTask batchTask;
 
     /**
      * Initializes the Trainer.
@@ -39,173 +42,123 @@ public class StochasticGradientDescentTrainer {
      * @param regularization regularization applied on weights
      */
     public StochasticGradientDescentTrainer(NeuralNetwork net, CostFunction costFunction, Regularization regularization) {
-        this.net = net;
-        this.costFunction = costFunction;
-        this.regularization = regularization;
+        super(net, costFunction, regularization);
     }
 
     /**
-     * Trains the network using the training and test data. Training is repeated
-     * for the number of epochs.
+     * Trains all batches of the epoch one after another.
      *
-     * @param epochs number of training iterations
+     * @param batches number of batches of the epoch
      * @param learningRate learning rate determines how fast the weights in the
      * network are changed
      * @param lambda strength of regularization
-     * @param batchSize size of training data to be trained at once. Lower
-     * values decrease training speed but increase accuracy. Higher values
-     * increase training speed but decrease accuracy.
-     * @param evaluate if true, after every epoch the network is evaluated using
-     * the whole test data. Slows down training but gives you important
-     * insights.
+     * @param n total size of training data
      */
-    public void train(int epochs, double learningRate, double lambda, int batchSize, boolean evaluate) {
-        if (trainingIn == null || trainingOut == null || testIn == null || testOut == null) {
-            System.out.println("\n--- Training was cancelled because of missing data - Please specify training and test data ---");
+    @Override
+    protected void trainBatches(int batches, double learningRate, double lambda, int n) {
+        int threads = getThreads(), partSize = getPartSize();
+        if (workspaces.length != threads || workspaces[0].getMaxBatchSize() < partSize) {
+            workspaces = new NetworkWorkspace[threads];
+            tasks = new PartTask[threads];
+            for (int k = 0; k < threads; k++) {
+                workspaces[k] = new NetworkWorkspace(net, partSize);
+                tasks[k] = new PartTask(k, workspaces[k]);
+            }
+            batchTask = new BatchTask();
         }
-
-        System.out.printf("%n---Training Network---%n"
-                + "Training data: %d, Test data: %d, Batch size: %d%n"
-                + "Epochs: %d, Learning rate: %.2f, Lambda: %.2f%n%n",
-                trainingIn.length, testIn.length, batchSize, epochs, learningRate, lambda);
-        for (int i = 0; i < epochs; i++) {
-            trainEpoch(i, learningRate, lambda, batchSize, evaluate);
+        for (int j = 0; j < batches; j++) {
+            trainBatch(j, learningRate, lambda, n);
         }
-        System.out.printf("Result:%n"
-                + "Training accuracy: %.2f%n"
-                + "            error: %f%n"
-                + "   Test  accuracy: %.2f%n"
-                + "            error: %f%n",
-                test(trainingIn, trainingOut),
-                costFunction.calculateTotal(net, trainingIn, trainingOut),
-                test(testIn, testOut),
-                costFunction.calculateTotal(net, testIn, testOut));
     }
 
     /**
-     * Trains one epoch using the training data. Divides the whole data into
-     * smaller batches and trains the network with them.
+     * Splits every batch into one part per thread.
      *
-     * @param epoch current epoch
-     * @param learningRate learning rate determines how fast the weights in the
-     * network are changed
-     * @param lambda strength of regularization
-     * @param batchSize size of training data to be trained at once. Lower
-     * values decrease training speed but increase accuracy. Higher values
-     * increase training speed but decrease accuracy.
-     * @param evaluate if true, after every epoch the network is evaluated using
-     * the whole test data. Slows down training but gives you important
-     * insights.
+     * @return number of threads
      */
-    private void trainEpoch(int epoch, double learningRate, double lambda, int batchSize, boolean evaluate) {
-        long millis = System.currentTimeMillis();
-        DataUtils.shuffle(trainingIn, trainingOut);
-        Matrix[] dataIn = DataUtils.subdivide(trainingIn, batchSize);
-        Matrix[] dataOut = DataUtils.subdivide(trainingOut, batchSize);
-        long millisPrepare = System.currentTimeMillis();
-        for (int j = 0; j < trainingIn.length / (double) batchSize; j++) {
-            trainBatch(dataIn[j], dataOut[j], learningRate, lambda, trainingIn.length);
-        }
-        long millisTrain = System.currentTimeMillis();
-        System.out.printf("Epoch: %d%n",
-                epoch + 1);
-        if (evaluate) {
-            System.out.printf("Training accuracy: %.2f%n"
-                    + "            error: %f%n"
-                    + "   Test  accuracy: %.2f%n"
-                    + "            error: %f%n"
-                    + "Time elapsed: %.4f%n"
-                    + "     prepare: %.4f%n"
-                    + "    training: %.4f%n"
-                    + "    evaluate: %.4f%n",
-                    test(trainingIn, trainingOut),
-                    costFunction.calculateTotal(net, trainingIn, trainingOut),
-                    test(testIn, testOut),
-                    costFunction.calculateTotal(net, testIn, testOut),
-                    (System.currentTimeMillis() - millis) / 1000.0,
-                    (millisPrepare - millis) / 1000.0,
-                    (millisTrain - millisPrepare) / 1000.0,
-                    (System.currentTimeMillis() - millisTrain) / 1000.0);
-        }
+    @Override
+    protected int getPartsPerBatch() {
+        return getThreads();
     }
 
     /**
      * Trains one batch of training examples and changes weights of the neural
      * network.
      *
-     * @param trainingIn part of whole input training data
-     * @param trainingOut part of whole output training data
+     * @param batch index of the batch in the epoch
      * @param learningRate learning rate determines how fast the weights in the
      * network are changed
      * @param lambda strength of regularization
      * @param n total size of training data
      */
-    private void trainBatch(Matrix trainingIn, Matrix trainingOut, double learningRate, double lambda, int n) {
-        int size = net.getSize();
-        Matrix[] weights = net.getWeights();
-        Vector[] biases = net.getBiases();
-        Matrix[] weightErrors = new Matrix[size - 1];
-        Vector[] biasErrors = new Vector[size - 1];
-        for (int i = 0; i < size - 1; i++) {
-            weightErrors[i] = new Matrix(weights[i].getN(), weights[i].getM());
-            biasErrors[i] = new Vector(biases[i].getN());
+    private void trainBatch(int batch, double learningRate, double lambda, int n) {
+        load(batch, 0);
+        int parts = getParts(0);
+        if (parts == 1) {
+            backpropagate(0, 0, workspaces[0]);
+        } else {
+            batchTask.reinitialize();
+            batchTask.parts = parts;
+            getPool().invoke(batchTask);
         }
-        net.backpropagate(trainingIn, trainingOut, weightErrors, biasErrors, costFunction);
-        double stochasticFactor = learningRate / trainingIn.getM();
-        for (int i = 0; i < size - 1; i++) {
-            if (regularization == null) {
-                weights[i] = weights[i].subMat(weightErrors[i].mulSca(stochasticFactor));
-            } else {
-                weights[i] = regularization.calculate(weights[i], learningRate, lambda, n).subMat(weightErrors[i].mulSca(stochasticFactor));
+        Matrix[] weightErrors = workspaces[0].getWeightErrors();
+        Vector[] biasErrors = workspaces[0].getBiasErrors();
+        for (int k = 1; k < parts; k++) {
+            for (int i = 0; i < weightErrors.length; i++) {
+                weightErrors[i].addMatInPlace(workspaces[k].getWeightErrors()[i]);
+                biasErrors[i].addVecInPlace(workspaces[k].getBiasErrors()[i]);
             }
-            biases[i] = biases[i].subVec(biasErrors[i].mulSca(stochasticFactor));
         }
+        applyGradients(weightErrors, biasErrors, learningRate, lambda, n, getBatchSize(0));
     }
 
     /**
-     * Testing the neural network. Evaluates the accuracy of the network by
-     * comparing the calculated outputs with the desired outputs.
-     *
-     * @param testIn input test data
-     * @param testOut test data of desired outputs
-     * @return percentage of test exapmles calculated correctly
+     * Task that backpropagates all parts of the loaded batch. The first part
+     * is calculated by the task itself, the others are forked. The task is
+     * reused for every batch.
      */
-    private double test(Vector[] testIn, Vector[] testOut) {
-        int correct = 0;
-        double[][] result = net.feedforward(new Matrix(testIn)).getArray();
-        for (int j = 0; j < testIn.length; j++) {
-            int max = 0;
-            for (int i = 1; i < result.length; i++) {
-                if (result[i][j] > result[max][j]) {
-                    max = i;
-                }
+    private class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private int parts;
+
+        @Override
+        protected void compute() {
+            for (int k = 1; k < parts; k++) {
+                tasks[k].reinitialize();
+                tasks[k].fork();
             }
-            if (testOut[j].getArray()[max] == 1.0) {
-                correct++;
+            backpropagate(0, 0, workspaces[0]);
+            for (int k = parts - 1; k > 0; k--) {
+                tasks[k].join();
             }
         }
-        return (double) correct / testIn.length * 100.0;
     }
 
     /**
-     * Sets the training data.
-     *
-     * @param trainingIn input data
-     * @param trainingOut output data
+     * Task that backpropagates one part of the loaded batch into the
+     * workspace of its thread. The task is reused for every batch.
      */
-    public void setTrainingData(Vector[] trainingIn, Vector[] trainingOut) {
-        this.trainingIn = trainingIn;
-        this.trainingOut = trainingOut;
-    }
+    private class PartTask extends RecursiveAction {
 
-    /**
-     * Sets the test data.
-     *
-     * @param testIn input data
-     * @param testOut output data
-     */
-    public void setTestData(Vector[] testIn, Vector[] testOut) {
-        this.testIn = testIn;
-        this.testOut = testOut;
+        private static final long serialVersionUID = 1L;
+        private final int part;
+        private final NetworkWorkspace ws;
+
+        /**
+         * Initializes the task for a part.
+         *
+         * @param part index of the part within a batch
+         * @param ws workspace of the part
+         */
+        PartTask(int part, NetworkWorkspace ws) {
+            this.part = part;
+            this.ws = ws;
+        }
+
+        @Override
+        protected void compute() {
+            backpropagate(0, part, ws);
+        }
     }
 }
@@ -0,0 +1,570 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.trainer;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.OffHeapMatrix;
+import zindach.mathlib.algebra.Vector;
+import zindach.neuralnetlib.net.NetworkWorkspace;
+import zindach.neuralnetlib.net.NeuralNetwork;
+import zindach.neuralnetlib.options.cost.CostFunction;
+import zindach.neuralnetlib.options.optimizer.GradientDescentOptimizer;
+import zindach.neuralnetlib.options.optimizer.Optimizer;
+import zindach.neuralnetlib.options.regularization.Regularization;
+import zindach.neuralnetlib.options.schedule.ConstantSchedule;
+import zindach.neuralnetlib.options.schedule.LearningRateSchedule;
+
+/**
+ * An abstract superclass for trainers. Holds the training and test data,
+ * trains the batches of the training data in a new order every epoch and
+ * reports the accuracy and cost of the network. Subclasses decide how the
+ * batches of an epoch change the weights. Evaluation can run in the
+ * background on a copy of the weights while the next epoch is trained.
+ *
+ * @author ChriZ98
+ */
+public abstract class Trainer {
+
+    protected final NeuralNetwork net;
+    protected final CostFunction costFunction;
+    protected final Regularization regularization;
+    private final Evaluator evaluator;
+    private Optimizer optimizer = new GradientDescentOptimizer();
+    private LearningRateSchedule schedule = new ConstantSchedule();
+    private EarlyStopping earlyStopping;
+    private EvaluationListener evaluationListener;
+    private ExecutorService evaluationExecutor;
+    private ForkJoinPool evaluationPool;
+    private volatile boolean stopped;
+    private TrainingSet training;
+    private Matrix testIn;
+    private Matrix testOut;
+    private Matrix validationIn;
+    private Matrix validationOut;
+    private boolean sparseInput;
+    private int threads = 1;
+    private ForkJoinPool pool;
+
+    /**
+     * Initializes the Trainer.
+     *
+     * @param net network to be trained
+     * @param costFunction cost function to minimize
+     * @param regularization regularization applied on weights
+     */
+    public Trainer(NeuralNetwork net, CostFunction costFunction, Regularization regularization) {
+        this.net = net;
+        this.costFunction = costFunction;
+        this.regularization = regularization;
+        this.evaluator = new Evaluator(net, costFunction);
+    }
+
+    /**
+     * Trains the network using the training and test data. Training is repeated
+     * for the number of epochs or until early stopping ends it.
+     *
+     * @param epochs number of training iterations
+     * @param learningRate learning rate determines how fast the weights in the
+     * network are changed. The schedule derives the learning rate of every
+     * epoch from it
+     * @param lambda strength of regularization
+     * @param batchSize size of training data to be trained at once. Lower
+     * values decrease training speed but increase accuracy. Higher values
+     * increase training speed but decrease accuracy.
+     * @param evaluate if true, after every epoch the network is evaluated using
+     * the whole test data. Slows down training but gives you important
+     * insights.
+     */
+    public void train(int epochs, double learningRate, double lambda, int batchSize, boolean evaluate) {
+        if (training == null || testIn == null || testOut == null) {
+            System.out.println("\n--- Training was cancelled because of missing data - Please specify training and test data ---");
+        }
+        if (earlyStopping != null && (validationIn == null || validationOut == null)) {
+            throw new IllegalStateException("Early stopping needs validation data");
+        }
+
+        System.out.printf("%n---Training Network---%n"
+                + "Training data: %d, Test data: %d, Batch size: %d%n"
+                + "Epochs: %d, Learning rate: %.2f, Lambda: %.2f%n%n",
+                training.getSize(), testIn.getM(), batchSize, epochs, learningRate, lambda);
+        if (earlyStopping != null) {
+            earlyStopping.reset();
+        }
+        stopped = false;
+        Future<?> pending = null;
+        int epoch = 0;
+        try {
+            while (epoch < epochs && !stopped) {
+                Future<?> evaluation = trainEpoch(epoch, schedule.getLearningRate(learningRate, epoch, epochs), lambda, batchSize, evaluate);
+                pending = evaluation != null ? evaluation : pending;
+                epoch++;
+            }
+            if (pending != null) {
+                pending.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Evaluation failed", ex.getCause());
+        } finally {
+            if (evaluationExecutor != null) {
+                evaluationExecutor.shutdown();
+                evaluationExecutor = null;
+            }
+        }
+        if (stopped) {
+            System.out.printf("Stopped early after epoch %d, best epoch: %d%n%n", epoch, earlyStopping.getBestEpoch() + 1);
+        }
+        if (earlyStopping != null) {
+            earlyStopping.restore(net);
+        }
+        Evaluation trainingResult = training.evaluate(evaluator);
+        Evaluation test = evaluator.evaluate(testIn, testOut);
+        System.out.printf("Result:%n"
+                + "Training accuracy: %.2f%n"
+                + "            error: %f%n"
+                + "   Test  accuracy: %.2f%n"
+                + "            error: %f%n",
+                trainingResult.getAccuracy(),
+                trainingResult.getCost(),
+                test.getAccuracy(),
+                test.getCost());
+    }
+
+    /**
+     * Trains one epoch using the training data. Shuffles the order of the
+     * batches and trains the network with them. If evaluation runs in the
+     * background, the training and test data are evaluated on a copy of the
+     * weights while the next epoch is trained.
+     *
+     * @param epoch current epoch
+     * @param learningRate learning rate determines how fast the weights in the
+     * network are changed
+     * @param lambda strength of regularization
+     * @param batchSize size of training data to be trained at once. Lower
+     * values decrease training speed but increase accuracy. Higher values
+     * increase training speed but decrease accuracy.
+     * @param evaluate if true, after every epoch the network is evaluated using
+     * the whole test data. Slows down training but gives you important
+     * insights.
+     * @return background evaluation of the epoch or null if the epoch was
+     * evaluated right away or not at all
+     */
+    private Future<?> trainEpoch(int epoch, double learningRate, double lambda, int batchSize, boolean evaluate) {
+        long millis = System.currentTimeMillis();
+        boolean background = evaluationListener != null && (evaluate || earlyStopping != null);
+        training.shuffle();
+        training.prepare(batchSize, getPartsPerBatch(), threads, sparseInput);
+        long millisPrepare = System.currentTimeMillis();
+        trainBatches(training.getBatches(), learningRate, lambda, training.getSize());
+        long millisTrain = System.currentTimeMillis();
+        System.out.printf("Epoch: %d, Learning rate: %.4f%n",
+                epoch + 1, learningRate);
+        if (background) {
+            NeuralNetwork snapshot = net.copy();
+            TrainingSet training = this.training;
+            ForkJoinPool pool = evaluationPool;
+            return getEvaluationExecutor().submit(() -> {
+                Evaluator snapshotEvaluator = new Evaluator(snapshot, costFunction, pool);
+                Evaluation trainingResult = training.evaluate(snapshotEvaluator);
+                Evaluation test = snapshotEvaluator.evaluate(testIn, testOut);
+                evaluationListener.evaluated(epoch, trainingResult, test);
+                checkEarlyStopping(snapshotEvaluator, snapshot, epoch);
+            });
+        }
+        if (evaluate) {
+            Evaluation trainingResult = training.evaluate(evaluator);
+            Evaluation test = evaluator.evaluate(testIn, testOut);
+            System.out.printf("Training accuracy: %.2f%n"
+                    + "            error: %f%n"
+                    + "   Test  accuracy: %.2f%n"
+                    + "            error: %f%n"
+                    + "Time elapsed: %.4f%n"
+                    + "     prepare: %.4f%n"
+                    + "    training: %.4f%n"
+                    + "    evaluate: %.4f%n",
+                    trainingResult.getAccuracy(),
+                    trainingResult.getCost(),
+                    test.getAccuracy(),
+                    test.getCost(),
+                    (System.currentTimeMillis() - millis) / 1000.0,
+                    (millisPrepare - millis) / 1000.0,
+                    (millisTrain - millisPrepare) / 1000.0,
+                    (System.currentTimeMillis() - millisTrain) / 1000.0);
+        }
+        checkEarlyStopping(evaluator, net, epoch);
+        return null;
+    }
+
+    /**
+     * Evaluates the validation data, passes its cost to early stopping and
+     * stops training if it no longer improves.
+     *
+     * @param evaluator evaluator of the network
+     * @param net network whose weights are evaluated
+     * @param epoch evaluated epoch
+     */
+    private void checkEarlyStopping(Evaluator evaluator, NeuralNetwork net, int epoch) {
+        if (earlyStopping != null && earlyStopping.update(net, evaluator.evaluate(validationIn, validationOut).getCost(), epoch)) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * Trains all batches of an epoch and changes the weights of the neural
+     * network. A batch has to be loaded into a slot before it is used.
+     *
+     * @param batches number of batches of the epoch
+     * @param learningRate learning rate determines how fast the weights in the
+     * network are changed
+     * @param lambda strength of regularization
+     * @param n total size of training data
+     */
+    protected abstract void trainBatches(int batches, double learningRate, double lambda, int n);
+
+    /**
+     * Gets the number of parts every batch is split into. The parts are
+     * backpropagated on their own, for example by different threads.
+     *
+     * @return number of parts per batch
+     */
+    protected int getPartsPerBatch() {
+        return 1;
+    }
+
+    /**
+     * Loads a batch of the epoch into a slot. Every thread that trains batches
+     * at the same time as others needs its own slot. Slots range from 0 to the
+     * number of threads - 1.
+     *
+     * @param batch index of the batch in the epoch
+     * @param slot slot that holds the batch until the next load
+     */
+    protected void load(int batch, int slot) {
+        training.load(batch, slot);
+    }
+
+    /**
+     * Gets the number of parts of the batch loaded into a slot.
+     *
+     * @param slot slot of the batch
+     * @return number of parts
+     */
+    protected int getParts(int slot) {
+        return training.getParts(slot);
+    }
+
+    /**
+     * Gets the number of examples of the batch loaded into a slot.
+     *
+     * @param slot slot of the batch
+     * @return number of examples
+     */
+    protected int getBatchSize(int slot) {
+        return training.getBatchSize(slot);
+    }
+
+    /**
+     * Gets the largest number of examples of a part of a batch, which is the
+     * number of columns a workspace needs.
+     *
+     * @return maximum number of examples of a part
+     */
+    protected int getPartSize() {
+        return training.getPartSize();
+    }
+
+    /**
+     * Backpropagates a part of the batch loaded into a slot into a workspace.
+     *
+     * @param slot slot of the batch
+     * @param part index of the part
+     * @param ws workspace for the gradients
+     */
+    protected void backpropagate(int slot, int part, NetworkWorkspace ws) {
+        Matrix trainingOut = training.getBatchOut(slot, part);
+        if (sparseInput) {
+            net.backpropagate(training.getSparseBatchIn(slot, part), trainingOut, ws, costFunction);
+        } else {
+            net.backpropagate(training.getBatchIn(slot, part), trainingOut, ws, costFunction);
+        }
+    }
+
+    /**
+     * Applies the regularization to the weights and changes the weights and
+     * biases by the gradients of a batch using the optimizer.
+     *
+     * @param weightErrors summed gradients of the weights of every layer
+     * @param biasErrors summed gradients of the biases of every layer
+     * @param learningRate learning rate determines how fast the weights in the
+     * network are changed
+     * @param lambda strength of regularization
+     * @param n total size of training data
+     * @param batchSize number of examples the gradients are summed over
+     */
+    protected void applyGradients(Matrix[] weightErrors, Vector[] biasErrors, double learningRate, double lambda, int n, int batchSize) {
+        regularize(learningRate, lambda, n, 1);
+        updateWeights(weightErrors, biasErrors, learningRate, batchSize);
+    }
+
+    /**
+     * Changes the weights and biases by the gradients of a batch using the
+     * optimizer without applying the regularization.
+     *
+     * @param weightErrors summed gradients of the weights of every layer
+     * @param biasErrors summed gradients of the biases of every layer
+     * @param learningRate learning rate determines how fast the weights in the
+     * network are changed
+     * @param batchSize number of examples the gradients are summed over
+     */
+    protected void updateWeights(Matrix[] weightErrors, Vector[] biasErrors, double learningRate, int batchSize) {
+        optimizer.update(net, weightErrors, biasErrors, learningRate, batchSize);
+    }
+
+    /**
+     * Applies the regularization to the weights as often as it would be
+     * applied by the given number of batches.
+     *
+     * @param learningRate learning rate determines how fast the weights in the
+     * network are changed
+     * @param lambda strength of regularization
+     * @param n total size of training data
+     * @param times number of batches
+     */
+    protected void regularize(double learningRate, double lambda, int n, int times) {
+        if (regularization != null) {
+            for (Matrix weights : net.getWeights()) {
+                regularization.calculateInPlace(weights, learningRate, lambda, n, times);
+            }
+        }
+    }
+
+    /**
+     * Sets the training data. The vectors are copied into one matrix per
+     * array, so they are not needed afterwards.
+     *
+     * @param trainingIn input data
+     * @param trainingOut output data
+     */
+    public void setTrainingData(Vector[] trainingIn, Vector[] trainingOut) {
+        setTrainingData(new Matrix(trainingIn), new Matrix(trainingOut));
+    }
+
+    /**
+     * Sets the training data. Every column holds one example. The matrices
+     * are only read and the batches are views of consecutive examples, so the
+     * examples should be stored in random order. Every epoch the batches are
+     * trained in a new order.
+     *
+     * @param trainingIn input data
+     * @param trainingOut output data
+     */
+    public void setTrainingData(Matrix trainingIn, Matrix trainingOut) {
+        this.training = new TrainingSet(trainingIn, trainingOut);
+    }
+
+    /**
+     * Sets training data stored off the heap. Every column holds one example.
+     * Every batch is copied onto the heap when it is trained, so the data set
+     * does not have to fit into the heap. As for data on the heap, the
+     * examples should be stored in random order.
+     * The matrices must stay open until training finished.
+     *
+     * @param trainingIn input data
+     * @param trainingOut output data
+     */
+    public void setTrainingData(OffHeapMatrix trainingIn, OffHeapMatrix trainingOut) {
+        this.training = new TrainingSet(trainingIn, trainingOut);
+    }
+
+    /**
+     * Sets the test data. The vectors are copied into one matrix per array,
+     * so they are not needed afterwards.
+     *
+     * @param testIn input data
+     * @param testOut output data
+     */
+    public void setTestData(Vector[] testIn, Vector[] testOut) {
+        setTestData(new Matrix(testIn), new Matrix(testOut));
+    }
+
+    /**
+     * Sets the test data. Every column holds one example.
+     *
+     * @param testIn input data
+     * @param testOut output data
+     */
+    public void setTestData(Matrix testIn, Matrix testOut) {
+        this.testIn = testIn;
+        this.testOut = testOut;
+    }
+
+    /**
+     * Sets the validation data used by early stopping. The vectors are copied
+     * into one matrix per array, so they are not needed afterwards.
+     *
+     * @param validationIn input data
+     * @param validationOut output data
+     */
+    public void setValidationData(Vector[] validationIn, Vector[] validationOut) {
+        setValidationData(new Matrix(validationIn), new Matrix(validationOut));
+    }
+
+    /**
+     * Sets the validation data used by early stopping. Every column holds one
+     * example. The validation data should neither be part of the training nor
+     * of the test data.
+     *
+     * @param validationIn input data
+     * @param validationOut output data
+     */
+    public void setValidationData(Matrix validationIn, Matrix validationOut) {
+        this.validationIn = validationIn;
+        this.validationOut = validationOut;
+    }
+
+    /**
+     * Sets whether training batches are sparse matrices. The input data is
+     * compressed once and the batches are views of it. The first layer then
+     * skips all inputs that are zero, which pays off for data like MNIST where
+     * most pixels are empty.
+     *
+     * @param sparseInput true to train with sparse input batches
+     */
+    public void setSparseInput(boolean sparseInput) {
+        this.sparseInput = sparseInput;
+    }
+
+    /**
+     * Sets the optimizer that changes the weights. The state of the optimizer
+     * is kept between calls of train. Default is plain gradient descent.
+     *
+     * @param optimizer optimizer to use
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        this.optimizer = optimizer;
+    }
+
+    /**
+     * Gets the optimizer that changes the weights.
+     *
+     * @return optimizer
+     */
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
+    /**
+     * Sets the schedule that changes the learning rate from epoch to epoch.
+     * Default is a constant learning rate.
+     *
+     * @param schedule learning rate schedule
+     */
+    public void setSchedule(LearningRateSchedule schedule) {
+        this.schedule = schedule;
+    }
+
+    /**
+     * Sets early stopping. The cost on the validation data is evaluated after
+     * every epoch and training stops when it no longer improves. Training
+     * with early stopping needs validation data.
+     *
+     * @param earlyStopping early stopping policy or null to train all epochs
+     */
+    public void setEarlyStopping(EarlyStopping earlyStopping) {
+        this.earlyStopping = earlyStopping;
+    }
+
+    /**
+     * Sets a listener that receives the evaluation of every epoch. If set,
+     * epochs are evaluated in the background while the next epoch is trained,
+     * so evaluation does not slow down training. The training and test data
+     * are evaluated on a copy of the weights at the end of the epoch, which is
+     * safe because training never changes the training data. Early stopping is
+     * decided in the background as well, so training may run one epoch longer
+     * before it stops. The background thread ends when training ends. The
+     * chunks of the data are calculated on the common fork join pool.
+     *
+     * @param evaluationListener listener or null to evaluate every epoch on
+     * the training thread
+     */
+    public void setAsyncEvaluation(EvaluationListener evaluationListener) {
+        setAsyncEvaluation(evaluationListener, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Sets a listener that receives the evaluation of every epoch and the pool
+     * the background evaluation calculates its chunks on. A pool of its own
+     * keeps the evaluation from competing with other work on the common pool.
+     * The pool is not shut down when training ends.
+     *
+     * @param evaluationListener listener or null to evaluate every epoch on
+     * the training thread
+     * @param pool pool the chunks of the background evaluation are calculated
+     * on
+     */
+    public void setAsyncEvaluation(EvaluationListener evaluationListener, ForkJoinPool pool) {
+        this.evaluationListener = evaluationListener;
+        this.evaluationPool = pool;
+    }
+
+    /**
+     * Gets the executor evaluating epochs in the background. It is shut down
+     * at the end of train.
+     *
+     * @return single thread executor
+     */
+    private ExecutorService getEvaluationExecutor() {
+        if (evaluationExecutor == null) {
+            evaluationExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "Evaluation");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return evaluationExecutor;
+    }
+
+    /**
+     * Sets the number of threads used for training. How the threads share the
+     * work depends on the trainer.
+     *
+     * @param threads number of threads, 1 to train on the calling thread
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+        this.threads = threads;
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * Gets the number of threads used for training.
+     *
+     * @return number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Gets the pool the training threads run on.
+     *
+     * @return pool or null if only one thread is used
+     */
+    protected ForkJoinPool getPool() {
+        return pool;
+    }
+}
@@ -0,0 +1,418 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.trainer;
+
+import java.util.Random;
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.OffHeapMatrix;
+import zindach.mathlib.algebra.SparseMatrix;
+
+/**
+ * Training data of a trainer. The examples themselves are never moved or
+ * copied on the heap. Batch b always consists of the consecutive examples
+ * starting at b * batchSize and every epoch only the order of the batches is
+ * shuffled. The batches and their parts are views of the data that are
+ * created once for every batch size. Because the examples of a batch stay
+ * together, the data should be stored in random order. For sparse input the
+ * input data is compressed once. Data off the heap is copied one batch at a
+ * time into a heap buffer of the slot that loads it, so every thread training
+ * batches at the same time uses its own slot.
+ *
+ * @author ChriZ98
+ */
+class TrainingSet {
+
+    private static final int CHUNK_SIZE = 1024;
+    private final Matrix in;
+    private final Matrix out;
+    private final OffHeapMatrix offHeapIn;
+    private final OffHeapMatrix offHeapOut;
+    private final int size;
+    private final Random random = new Random();
+    private SparseMatrix sparseIn;
+    private boolean sparse;
+    private int batchSize;
+    private int parts;
+    private int[] order = new int[0];
+    private Matrix[][] batchesIn;
+    private Matrix[][] batchesOut;
+    private SparseMatrix[][] sparseBatchesIn;
+    private Buffer[] buffersIn;
+    private Buffer[] buffersOut;
+    private Matrix[][] loadedIn;
+    private Matrix[][] loadedOut;
+    private SparseMatrix[][] loadedSparseIn;
+    private int[] loadedSize;
+
+    /**
+     * Initializes the training data with matrices on the heap.
+     *
+     * @param in input data, every column holds one example
+     * @param out output data
+     */
+    TrainingSet(Matrix in, Matrix out) {
+        this(in, out, null, null, in.getM(), out.getM());
+    }
+
+    /**
+     * Initializes the training data with matrices off the heap.
+     *
+     * @param in input data, every column holds one example
+     * @param out output data
+     */
+    TrainingSet(OffHeapMatrix in, OffHeapMatrix out) {
+        this(null, null, in, out, in.getM(), out.getM());
+    }
+
+    /**
+     * Initializes the training data. Either the heap or the off heap matrices
+     * are given.
+     *
+     * @param in input data on the heap
+     * @param out output data on the heap
+     * @param offHeapIn input data off the heap
+     * @param offHeapOut output data off the heap
+     * @param size number of input examples
+     * @param outSize number of output examples
+     */
+    private TrainingSet(Matrix in, Matrix out, OffHeapMatrix offHeapIn, OffHeapMatrix offHeapOut, int size, int outSize) {
+        if (size != outSize) {
+            throw new IllegalArgumentException("Got " + size + " inputs but " + outSize + " outputs");
+        }
+        this.in = in;
+        this.out = out;
+        this.offHeapIn = offHeapIn;
+        this.offHeapOut = offHeapOut;
+        this.size = size;
+    }
+
+    /**
+     * Draws a new random order of the batches.
+     */
+    void shuffle() {
+        for (int j = order.length - 1; j > 0; j--) {
+            int k = random.nextInt(j + 1);
+            int temp = order[j];
+            order[j] = order[k];
+            order[k] = temp;
+        }
+    }
+
+    /**
+     * Prepares the batches for a batch size. Every batch is split into parts
+     * of nearly equal size. The views and buffers are only created again if
+     * one of the sizes changes.
+     *
+     * @param batchSize number of examples per batch
+     * @param parts number of parts every batch is split into
+     * @param slots number of batches that are loaded at the same time
+     * @param sparse true to provide the input batches as sparse matrices
+     */
+    void prepare(int batchSize, int parts, int slots, boolean sparse) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (batchSize == this.batchSize && parts == this.parts && slots == loadedSize.length && sparse == this.sparse) {
+            return;
+        }
+        if (batchSize != this.batchSize) {
+            order = new int[(size + batchSize - 1) / batchSize];
+            for (int b = 0; b < order.length; b++) {
+                order[b] = b;
+            }
+        }
+        this.batchSize = batchSize;
+        this.parts = parts;
+        this.sparse = sparse;
+        batchesOut = out != null ? split(out) : null;
+        buffersOut = out == null ? new Buffer[slots] : null;
+        if (sparse) {
+            if (sparseIn == null) {
+                sparseIn = compress();
+            }
+            sparseBatchesIn = split(sparseIn);
+            batchesIn = null;
+            buffersIn = null;
+        } else {
+            sparseBatchesIn = null;
+            batchesIn = in != null ? split(in) : null;
+            buffersIn = in == null ? new Buffer[slots] : null;
+        }
+        loadedIn = new Matrix[slots][];
+        loadedOut = new Matrix[slots][];
+        loadedSparseIn = new SparseMatrix[slots][];
+        loadedSize = new int[slots];
+    }
+
+    /**
+     * Gets the number of batches of an epoch.
+     *
+     * @return number of batches
+     */
+    int getBatches() {
+        return order.length;
+    }
+
+    /**
+     * Loads a batch into a slot. Batches of data on the heap or of sparse
+     * input are only looked up, data off the heap is copied into the buffer
+     * of the slot. Different threads may load into different slots at the
+     * same time.
+     *
+     * @param batch index of the batch in the current order
+     * @param slot slot that holds the batch until the next load
+     */
+    void load(int batch, int slot) {
+        int b = order[batch];
+        loadedSize[slot] = Math.min(batchSize, size - b * batchSize);
+        if (batchesOut != null) {
+            loadedOut[slot] = batchesOut[b];
+        } else {
+            loadedOut[slot] = buffer(buffersOut, slot, offHeapOut).load(b);
+        }
+        if (sparse) {
+            loadedSparseIn[slot] = sparseBatchesIn[b];
+        } else if (batchesIn != null) {
+            loadedIn[slot] = batchesIn[b];
+        } else {
+            loadedIn[slot] = buffer(buffersIn, slot, offHeapIn).load(b);
+        }
+    }
+
+    /**
+     * Gets the number of examples of the batch loaded into a slot.
+     *
+     * @param slot slot of the batch
+     * @return number of examples
+     */
+    int getBatchSize(int slot) {
+        return loadedSize[slot];
+    }
+
+    /**
+     * Gets the number of parts of the batch loaded into a slot. Batches with
+     * fewer examples than parts have one part per example.
+     *
+     * @param slot slot of the batch
+     * @return number of parts
+     */
+    int getParts(int slot) {
+        return loadedOut[slot].length;
+    }
+
+    /**
+     * Gets the largest number of examples of a part.
+     *
+     * @return maximum number of columns of a part
+     */
+    int getPartSize() {
+        int p = Math.min(parts, batchSize);
+        return (batchSize + p - 1) / p;
+    }
+
+    /**
+     * Gets the dense input of a part of the batch loaded into a slot.
+     *
+     * @param slot slot of the batch
+     * @param part index of the part
+     * @return view of the data or of the buffer of the slot
+     */
+    Matrix getBatchIn(int slot, int part) {
+        return loadedIn[slot][part];
+    }
+
+    /**
+     * Gets the sparse input of a part of the batch loaded into a slot.
+     *
+     * @param slot slot of the batch
+     * @param part index of the part
+     * @return view of the compressed data
+     */
+    SparseMatrix getSparseBatchIn(int slot, int part) {
+        return loadedSparseIn[slot][part];
+    }
+
+    /**
+     * Gets the output of a part of the batch loaded into a slot.
+     *
+     * @param slot slot of the batch
+     * @param part index of the part
+     * @return view of the data or of the buffer of the slot
+     */
+    Matrix getBatchOut(int slot, int part) {
+        return loadedOut[slot][part];
+    }
+
+    /**
+     * Evaluates a network on all examples.
+     *
+     * @param evaluator evaluator of the network
+     * @return evaluation of the training data
+     */
+    Evaluation evaluate(Evaluator evaluator) {
+        if (offHeapIn != null) {
+            return evaluator.evaluate(offHeapIn, offHeapOut);
+        }
+        return evaluator.evaluate(in, out);
+    }
+
+    /**
+     * Gets the number of examples.
+     *
+     * @return number of examples
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of inputs of an example.
+     *
+     * @return number of rows of the input data
+     */
+    int getInputs() {
+        return in != null ? in.getN() : offHeapIn.getN();
+    }
+
+    /**
+     * Gets the number of outputs of an example.
+     *
+     * @return number of rows of the output data
+     */
+    int getOutputs() {
+        return out != null ? out.getN() : offHeapOut.getN();
+    }
+
+    /**
+     * Gets the buffer of a slot and creates it when the slot is used for the
+     * first time. Only the thread using the slot creates its buffer.
+     *
+     * @param buffers buffers of all slots
+     * @param slot slot of the buffer
+     * @param data data off the heap the buffer is loaded from
+     * @return buffer of the slot
+     */
+    private Buffer buffer(Buffer[] buffers, int slot, OffHeapMatrix data) {
+        if (buffers[slot] == null) {
+            buffers[slot] = new Buffer(data);
+        }
+        return buffers[slot];
+    }
+
+    /**
+     * Divides the columns of a matrix into batches and every batch into
+     * parts.
+     *
+     * @param data matrix to divide
+     * @return views of the parts of every batch
+     */
+    private Matrix[][] split(Matrix data) {
+        Matrix[][] result = new Matrix[(data.getM() + batchSize - 1) / batchSize][];
+        for (int b = 0; b < result.length; b++) {
+            int j0 = b * batchSize, cols = Math.min(batchSize, data.getM() - j0);
+            result[b] = new Matrix[Math.min(parts, cols)];
+            for (int p = 0; p < result[b].length; p++) {
+                int p0 = p * cols / result[b].length, p1 = (p + 1) * cols / result[b].length;
+                result[b][p] = data.viewCols(j0 + p0, p1 - p0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Divides the columns of a sparse matrix into batches and every batch
+     * into parts.
+     *
+     * @param data matrix to divide
+     * @return views of the parts of every batch
+     */
+    private SparseMatrix[][] split(SparseMatrix data) {
+        SparseMatrix[][] result = new SparseMatrix[(data.getM() + batchSize - 1) / batchSize][];
+        for (int b = 0; b < result.length; b++) {
+            int j0 = b * batchSize, cols = Math.min(batchSize, data.getM() - j0);
+            result[b] = new SparseMatrix[Math.min(parts, cols)];
+            for (int p = 0; p < result[b].length; p++) {
+                int p0 = p * cols / result[b].length, p1 = (p + 1) * cols / result[b].length;
+                result[b][p] = data.viewCols(j0 + p0, p1 - p0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compresses the whole input data into a sparse matrix. Data off the heap
+     * is copied onto the heap one chunk at a time.
+     *
+     * @return sparse input data
+     */
+    private SparseMatrix compress() {
+        if (in != null) {
+            return new SparseMatrix(in);
+        }
+        int chunk = Math.max(1, Math.min(CHUNK_SIZE, size));
+        Matrix buffer = new Matrix(getInputs(), chunk);
+        SparseMatrix[] chunks = new SparseMatrix[(size + chunk - 1) / chunk];
+        int nonZeros = 0;
+        for (int c = 0; c < chunks.length; c++) {
+            int cols = Math.min(chunk, size - c * chunk);
+            chunks[c] = new SparseMatrix(offHeapIn.copyColsInto(c * chunk, buffer.viewCols(0, cols)));
+            nonZeros += chunks[c].getNonZeros();
+        }
+        int[] colPtr = new int[size + 1];
+        int[] rowIdx = new int[nonZeros];
+        double[] values = new double[nonZeros];
+        int pos = 0;
+        for (int c = 0; c < chunks.length; c++) {
+            SparseMatrix s = chunks[c];
+            for (int j = 0; j < s.getM(); j++) {
+                colPtr[c * chunk + j + 1] = pos + s.getColPointers()[j + 1];
+            }
+            System.arraycopy(s.getRowIndices(), 0, rowIdx, pos, s.getNonZeros());
+            System.arraycopy(s.getValues(), 0, values, pos, s.getNonZeros());
+            pos += s.getNonZeros();
+        }
+        return new SparseMatrix(getInputs(), size, colPtr, rowIdx, values);
+    }
+
+    /**
+     * Heap buffer of one slot for data off the heap. Holds one batch and the
+     * views of its parts, with separate views for the last batch, which may
+     * be smaller.
+     */
+    private class Buffer {
+
+        private final OffHeapMatrix data;
+        private final Matrix full;
+        private final Matrix last;
+        private final Matrix[] fullParts;
+        private final Matrix[] lastParts;
+
+        /**
+         * Initializes the buffer.
+         *
+         * @param data data off the heap the buffer is loaded from
+         */
+        Buffer(OffHeapMatrix data) {
+            this.data = data;
+            this.full = new Matrix(data.getN(), Math.min(batchSize, size));
+            this.last = full.viewCols(0, size - (order.length - 1) * batchSize);
+            this.fullParts = split(full)[0];
+            this.lastParts = split(last)[0];
+        }
+
+        /**
+         * Copies a batch into the buffer.
+         *
+         * @param batch index of the batch in the data
+         * @return views of the parts of the batch
+         */
+        Matrix[] load(int batch) {
+            boolean isLast = batch == order.length - 1;
+            data.copyColsInto(batch * batchSize, isLast ? last : full);
+            return isLast ? lastParts : fullParts;
+        }
+    }
+}
@@ -14,7 +14,6 @@ import java.util.Random;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
-import zindach.mathlib.algebra.Matrix;
 import zindach.mathlib.algebra.Vector;
 import zindach.neuralnetlib.io.NetworkIO;
 import zindach.neuralnetlib.options.cost.CrossEntropyCostFunction;
@@ -99,6 +98,14 @@ public class ButtonPanel extends JPanel {
                     MNISTLoader.importData("data/train-labels-idx1-ubyte.gz"));
             sgdt.setTestData(MNISTLoader.importData("data/t10k-images-idx3-ubyte.gz"),
                     MNISTLoader.importData("data/t10k-labels-idx1-ubyte.gz"));
+            sgdt.setSparseInput(true);
+            sgdt.setThreads(Runtime.getRuntime().availableProcessors());
+            sgdt.setAsyncEvaluation((epoch, training, test) -> System.out.printf("Evaluated epoch: %d%n"
+                    + "Training accuracy: %.2f%n"
+                    + "            error: %f%n"
+                    + "   Test  accuracy: %.2f%n"
+                    + "            error: %f%n",
+                    epoch + 1, training.getAccuracy(), training.getCost(), test.getAccuracy(), test.getCost()));
         }
         sgdt.train(2, 0.5, 5.0, 10, true);
     }
@@ -214,7 +221,7 @@ public class ButtonPanel extends JPanel {
             }
         }
         frame.repaint();
-        setLabels(frame.getNet().feedforward(new Matrix(vector)).getCols()[0].getArray());
+        setLabels(frame.getNet().predict(vector).getArray());
     }
 
     /**
@@ -0,0 +1,44 @@
+/*
+* NeuralNetTest by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnettest.main;
+
+import zindach.neuralnetlib.io.NetworkIO;
+import zindach.neuralnetlib.net.NeuralNetwork;
+import zindach.neuralnetlib.server.InferenceServer;
+
+/**
+ * Starts an inference server for a saved network from the command line.
+ *
+ * @author ChriZ98
+ */
+public class ServerMain {
+
+    /**
+     * Main method. Starts a server for a saved network and prints its
+     * statistics every ten seconds.
+     *
+     * @param args network file, port, maximum batch size and maximum latency
+     * in microseconds. Defaults are "data/network.dat", 5000, 64 and 2000
+     * @throws Exception if the server cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        String file = args.length > 0 ? args[0] : "data/network.dat";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int maxBatchSize = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        long maxLatencyMicros = args.length > 3 ? Long.parseLong(args[3]) : 2000;
+        NeuralNetwork net = NetworkIO.loadNetwork(file);
+        if (net == null) {
+            System.out.println("Could not load network from " + file);
+            return;
+        }
+        InferenceServer server = new InferenceServer(net, port, maxBatchSize, maxLatencyMicros);
+        System.out.println("Serving " + file + " on port " + server.getPort());
+        while (true) {
+            Thread.sleep(10000);
+            System.out.println(server.getStats());
+        }
+    }
+}
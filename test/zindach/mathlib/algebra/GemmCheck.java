@@ -0,0 +1,199 @@
+/*
+* MathLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.mathlib.algebra;
+
+import java.util.Random;
+
+/**
+ * Compares the matrix products calculated by Gemm with a naive triple loop.
+ * Every product is checked with the default tile sizes and with small and odd
+ * tile sizes, so that all edge tiles of the kernel are covered, and with the
+ * blocked and the parallel kernel forced on.
+ *
+ * @author ChriZ98
+ */
+public class GemmCheck {
+
+    private static final double EPSILON = 1e-9;
+    private static final int[][] SIZES = {
+        {1, 1, 1}, {1, 7, 3}, {3, 5, 7}, {4, 4, 4}, {5, 9, 13}, {8, 1, 8},
+        {17, 33, 65}, {64, 256, 10}, {65, 257, 129}, {130, 70, 300}
+    };
+    private static final int[][] TILES = {{64, 256, 1024}, {1, 1, 1}, {4, 4, 4}, {5, 3, 7}, {13, 17, 19}};
+    private static final Random RANDOM = new Random(42);
+    private static int checks;
+
+    /**
+     * Main method. Runs all checks and fails with an AssertionError on the
+     * first wrong result.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        try {
+            for (int[] tiles : TILES) {
+                Gemm.setTileSizes(tiles[0], tiles[1], tiles[2]);
+                checkAll();
+                Gemm.setThreshold(0);
+                checkAll();
+                Gemm.setParallelThreshold(0);
+                checkAll();
+                Gemm.setThreshold(8 * 8 * 8);
+                Gemm.setParallelThreshold(1L << 20);
+            }
+        } finally {
+            Gemm.setTileSizes(64, 256, 1024);
+            Gemm.setThreshold(8 * 8 * 8);
+            Gemm.setParallelThreshold(1L << 20);
+        }
+        System.out.println("GemmCheck: " + checks + " products correct with "
+                + (Kernels.isVectorized() ? "Vector API" : "scalar") + " kernels");
+    }
+
+    /**
+     * Checks every operation for all sizes.
+     */
+    private static void checkAll() {
+        for (int[] size : SIZES) {
+            int n = size[0], k = size[1], m = size[2];
+            Matrix A = random(n, k), B = random(k, m);
+            Matrix expected = naive(A, B);
+            check(expected, A.mulMat(B), "A*B", size);
+            check(expected, A.mulMatInto(B, random(n, m)), "A*B into", size);
+            check(expected, transpose(A).mulTransposeA(B), "A^T*B", size);
+            check(expected, A.mulTransposeB(transpose(B)), "A*B^T", size);
+            check(expected, view(A).mulMat(view(B)), "views", size);
+            Matrix S = sparse(random(k, m));
+            check(naive(A, S), A.mulMatInto(new SparseMatrix(S), random(n, m)), "A*S", size);
+
+            Vector bias = random(n, 1).getCols()[0];
+            Matrix withBias = naive(A, B);
+            Matrix activated = new Matrix(n, m);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < m; j++) {
+                    withBias.set(i, j, withBias.get(i, j) + bias.getArray()[i]);
+                    activated.set(i, j, Math.tanh(withBias.get(i, j)));
+                }
+            }
+            Matrix F = new Matrix(n, m);
+            check(withBias, A.mulMatAddVecInto(B, bias, random(n, m)), "A*B+b", size);
+            A.mulMatAddVecInto(B, bias, random(n, m), Math::tanh, F);
+            check(activated, F, "f(A*B+b)", size);
+        }
+    }
+
+    /**
+     * Compares a result with the expected matrix.
+     *
+     * @param expected expected result
+     * @param actual calculated result
+     * @param operation name of the operation
+     * @param size sizes n, k and m of the product
+     */
+    private static void check(Matrix expected, Matrix actual, String operation, int[] size) {
+        checks++;
+        if (expected.getN() != actual.getN() || expected.getM() != actual.getM()) {
+            throw new AssertionError(operation + " has wrong size for " + size[0] + "x" + size[1] + "x" + size[2]);
+        }
+        for (int i = 0; i < expected.getN(); i++) {
+            for (int j = 0; j < expected.getM(); j++) {
+                if (Math.abs(expected.get(i, j) - actual.get(i, j)) > EPSILON) {
+                    throw new AssertionError(operation + " differs at (" + i + ", " + j + ") for "
+                            + size[0] + "x" + size[1] + "x" + size[2] + ": expected " + expected.get(i, j)
+                            + " but was " + actual.get(i, j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Multiplies two matrices with a triple loop.
+     *
+     * @param A left matrix
+     * @param B right matrix
+     * @return product
+     */
+    private static Matrix naive(Matrix A, Matrix B) {
+        Matrix C = new Matrix(A.getN(), B.getM());
+        for (int i = 0; i < A.getN(); i++) {
+            for (int j = 0; j < B.getM(); j++) {
+                double sum = 0;
+                for (int l = 0; l < A.getM(); l++) {
+                    sum += A.get(i, l) * B.get(l, j);
+                }
+                C.set(i, j, sum);
+            }
+        }
+        return C;
+    }
+
+    /**
+     * Creates a matrix with random values between -1 and 1.
+     *
+     * @param n number of rows
+     * @param m number of columns
+     * @return random matrix
+     */
+    private static Matrix random(int n, int m) {
+        Matrix C = new Matrix(n, m);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                C.set(i, j, RANDOM.nextDouble() * 2 - 1);
+            }
+        }
+        return C;
+    }
+
+    /**
+     * Transposes a matrix.
+     *
+     * @param A matrix to transpose
+     * @return transposed copy
+     */
+    private static Matrix transpose(Matrix A) {
+        Matrix C = new Matrix(A.getM(), A.getN());
+        for (int i = 0; i < A.getN(); i++) {
+            for (int j = 0; j < A.getM(); j++) {
+                C.set(j, i, A.get(i, j));
+            }
+        }
+        return C;
+    }
+
+    /**
+     * Copies a matrix into the middle of a larger matrix and returns the view
+     * of it, so that the stride differs from the number of columns.
+     *
+     * @param A matrix to copy
+     * @return view with the values of A
+     */
+    private static Matrix view(Matrix A) {
+        Matrix V = random(A.getN() + 3, A.getM() + 5).view(2, 3, A.getN(), A.getM());
+        for (int i = 0; i < A.getN(); i++) {
+            for (int j = 0; j < A.getM(); j++) {
+                V.set(i, j, A.get(i, j));
+            }
+        }
+        return V;
+    }
+
+    /**
+     * Sets about half of the values of a matrix to zero.
+     *
+     * @param A matrix to change
+     * @return A
+     */
+    private static Matrix sparse(Matrix A) {
+        for (int i = 0; i < A.getN(); i++) {
+            for (int j = 0; j < A.getM(); j++) {
+                if (RANDOM.nextBoolean()) {
+                    A.set(i, j, 0);
+                }
+            }
+        }
+        return A;
+    }
+}
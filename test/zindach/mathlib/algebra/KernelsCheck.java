@@ -0,0 +1,121 @@
+/*
+* MathLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.mathlib.algebra;
+
+import java.util.Random;
+
+/**
+ * Compares the kernels with plain loops for all lengths up to a few vector
+ * widths and for odd offsets, so that the vector loop and the scalar tail are
+ * both covered.
+ *
+ * @author ChriZ98
+ */
+public class KernelsCheck {
+
+    private static final double EPSILON = 1e-12;
+    private static final Random RANDOM = new Random(42);
+    private static int checks;
+
+    /**
+     * Main method. Runs all checks and fails with an AssertionError on the
+     * first wrong result.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        for (int len = 0; len <= 37; len++) {
+            for (int off = 0; off <= 3; off++) {
+                checkAll(len, off);
+            }
+        }
+        System.out.println("KernelsCheck: " + checks + " kernels correct with "
+                + (Kernels.isVectorized() ? "Vector API" : "scalar") + " kernels");
+    }
+
+    /**
+     * Checks every kernel for one length and offset.
+     *
+     * @param len number of elements
+     * @param off offset of the first element in all arrays
+     */
+    private static void checkAll(int len, int off) {
+        double[] a = random(len + off), b = random(len + off);
+        double s = RANDOM.nextDouble() * 2 - 1;
+        double[] expected = random(len + off), actual = expected.clone();
+        for (int i = off; i < len + off; i++) {
+            expected[i] = a[i] + b[i];
+        }
+        Kernels.add(a, off, b, off, actual, off, len);
+        check(expected, actual, "add", len, off);
+        for (int i = off; i < len + off; i++) {
+            expected[i] = a[i] - b[i];
+        }
+        Kernels.sub(a, off, b, off, actual, off, len);
+        check(expected, actual, "sub", len, off);
+        for (int i = off; i < len + off; i++) {
+            expected[i] = a[i] * b[i];
+        }
+        Kernels.mul(a, off, b, off, actual, off, len);
+        check(expected, actual, "mul", len, off);
+        for (int i = off; i < len + off; i++) {
+            expected[i] = a[i] + s;
+        }
+        Kernels.addScalar(a, off, s, actual, off, len);
+        check(expected, actual, "addScalar", len, off);
+        for (int i = off; i < len + off; i++) {
+            expected[i] = a[i] * s;
+        }
+        Kernels.scale(a, off, s, actual, off, len);
+        check(expected, actual, "scale", len, off);
+        for (int i = off; i < len + off; i++) {
+            expected[i] += s * b[i];
+        }
+        Kernels.axpy(s, b, off, actual, off, len);
+        check(expected, actual, "axpy", len, off);
+
+        double dot = 0, sum = 0;
+        for (int i = off; i < len + off; i++) {
+            dot += a[i] * b[i];
+            sum += a[i];
+        }
+        check(new double[]{dot, sum}, new double[]{Kernels.dot(a, off, b, off, len), Kernels.sum(a, off, len)},
+                "dot and sum", len, off);
+    }
+
+    /**
+     * Compares a result with the expected values.
+     *
+     * @param expected expected values
+     * @param actual calculated values
+     * @param operation name of the kernel
+     * @param len number of elements
+     * @param off offset of the first element
+     */
+    private static void check(double[] expected, double[] actual, String operation, int len, int off) {
+        checks++;
+        for (int i = 0; i < expected.length; i++) {
+            if (Math.abs(expected[i] - actual[i]) > EPSILON) {
+                throw new AssertionError(operation + " differs at " + i + " for length " + len + " and offset "
+                        + off + ": expected " + expected[i] + " but was " + actual[i]);
+            }
+        }
+    }
+
+    /**
+     * Creates an array with random values between -1 and 1.
+     *
+     * @param n length of the array
+     * @return random array
+     */
+    private static double[] random(int n) {
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = RANDOM.nextDouble() * 2 - 1;
+        }
+        return a;
+    }
+}
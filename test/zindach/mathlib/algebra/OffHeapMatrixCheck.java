@@ -0,0 +1,175 @@
+/*
+* MathLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.mathlib.algebra;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that OffHeapMatrix returns the same values as a heap matrix and that
+ * close() releases the memory only after the last running operation, even if
+ * other threads still read the matrix while it is closed.
+ *
+ * @author ChriZ98
+ */
+public class OffHeapMatrixCheck {
+
+    private static final Random RANDOM = new Random(42);
+    private static final int THREADS = 4;
+
+    /**
+     * Main method. Runs all checks and fails with an AssertionError on the
+     * first wrong result.
+     *
+     * @param args not used
+     * @throws InterruptedException if interrupted while waiting for readers
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long before = directMemory();
+        checkCopies();
+        checkClose();
+        for (int round = 0; round < 20; round++) {
+            checkConcurrentClose();
+        }
+        long after = directMemory();
+        if (after > before) {
+            throw new AssertionError((after - before) + " bytes of direct memory were not released");
+        }
+        System.out.println("OffHeapMatrixCheck: copies, close and concurrent close correct");
+    }
+
+    /**
+     * Compares the copy operations with the heap matrix they were made from.
+     */
+    private static void checkCopies() {
+        Matrix A = random(7, 11);
+        try (OffHeapMatrix O = new OffHeapMatrix(A)) {
+            check(A, O.toMatrix(), "toMatrix");
+            check(A.view(2, 0, 3, 11), O.copyRowsInto(2, new Matrix(3, 11)), "copyRowsInto");
+            check(A.viewCols(4, 5), O.copyColsInto(4, new Matrix(7, 5)), "copyColsInto");
+            Matrix B = random(11, 4);
+            check(A.mulMat(B), O.mulMat(B), "mulMat");
+        }
+    }
+
+    /**
+     * Checks that operations after close() throw and that close() can be
+     * called twice.
+     */
+    private static void checkClose() {
+        OffHeapMatrix O = new OffHeapMatrix(random(3, 3));
+        O.close();
+        O.close();
+        if (!O.isClosed()) {
+            throw new AssertionError("isClosed is false after close");
+        }
+        try {
+            O.get(0, 0);
+            throw new AssertionError("get after close did not throw");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        try {
+            O.copyColsInto(0, new Matrix(3, 1));
+            throw new AssertionError("copyColsInto after close did not throw");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Closes a matrix while several threads copy batches out of it. Every copy
+     * that did not throw must contain the right values, so no thread may read
+     * memory that was already released.
+     *
+     * @throws InterruptedException if interrupted while waiting for readers
+     */
+    private static void checkConcurrentClose() throws InterruptedException {
+        Matrix A = random(64, 256);
+        OffHeapMatrix O = new OffHeapMatrix(A);
+        CountDownLatch started = new CountDownLatch(THREADS);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            readers[t] = new Thread(() -> {
+                Matrix C = new Matrix(64, 16);
+                started.countDown();
+                try {
+                    for (int j0 = 0;; j0 = (j0 + 16) % 256) {
+                        O.copyColsInto(j0, C);
+                        check(A.viewCols(j0, 16), C, "copyColsInto during close");
+                    }
+                } catch (IllegalStateException ex) {
+                    // closed
+                } catch (Throwable ex) {
+                    failure.set(ex);
+                }
+            });
+            readers[t].start();
+        }
+        started.await();
+        Thread.sleep(5);
+        O.close();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("Reader failed", failure.get());
+        }
+    }
+
+    /**
+     * Compares a result with the expected matrix.
+     *
+     * @param expected expected result
+     * @param actual calculated result
+     * @param operation name of the operation
+     */
+    private static void check(Matrix expected, Matrix actual, String operation) {
+        for (int i = 0; i < expected.getN(); i++) {
+            for (int j = 0; j < expected.getM(); j++) {
+                if (Math.abs(expected.get(i, j) - actual.get(i, j)) > 1e-12) {
+                    throw new AssertionError(operation + " differs at (" + i + ", " + j + "): expected "
+                            + expected.get(i, j) + " but was " + actual.get(i, j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the direct memory in use.
+     *
+     * @return used direct memory in bytes
+     */
+    private static long directMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Creates a matrix with random values between -1 and 1.
+     *
+     * @param n number of rows
+     * @param m number of columns
+     * @return random matrix
+     */
+    private static Matrix random(int n, int m) {
+        Matrix C = new Matrix(n, m);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                C.set(i, j, RANDOM.nextDouble() * 2 - 1);
+            }
+        }
+        return C;
+    }
+}
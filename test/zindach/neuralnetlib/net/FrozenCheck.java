@@ -0,0 +1,167 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.net;
+
+import java.util.Random;
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.Vector;
+import zindach.neuralnetlib.options.activation.ActivationFunction;
+import zindach.neuralnetlib.options.activation.ElementWiseActivationFunction;
+import zindach.neuralnetlib.options.activation.FastSigmoidFunction;
+import zindach.neuralnetlib.options.activation.IdentityFunction;
+import zindach.neuralnetlib.options.activation.LeakyReLUFunction;
+import zindach.neuralnetlib.options.activation.ReLUFunction;
+import zindach.neuralnetlib.options.activation.SigmoidFunction;
+import zindach.neuralnetlib.options.activation.SoftmaxFunction;
+import zindach.neuralnetlib.options.activation.TanhFunction;
+import zindach.neuralnetlib.options.cost.SoftmaxCrossEntropyCostFunction;
+import zindach.neuralnetlib.options.initialization.NormalizedInitialization;
+
+/**
+ * Compares the predictions of FrozenNetwork with NeuralNetwork.predict for
+ * every activation function, including functions that FrozenNetwork does not
+ * know, and checks that freezing with SoftmaxCrossEntropyCostFunction adds the
+ * softmax to an identity output layer. The frozen network calculates in
+ * single precision, so the results are compared with a float tolerance.
+ *
+ * @author ChriZ98
+ */
+public class FrozenCheck {
+
+    private static final double TOLERANCE = 1e-5;
+    private static final int INPUTS = 9;
+    private static final Random RANDOM = new Random(3);
+
+    /**
+     * Main method. Runs all checks and fails with an AssertionError on the
+     * first wrong result.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        check(new SigmoidFunction(), new FastSigmoidFunction(), new SigmoidFunction());
+        check(new TanhFunction(), new ReLUFunction(), new IdentityFunction());
+        check(new LeakyReLUFunction(0.1), new TanhFunction(), new SoftmaxFunction());
+        check(new ElementWiseActivationFunction() {
+            @Override
+            public double calculate(double x) {
+                return x / (1 + Math.abs(x));
+            }
+
+            @Override
+            public double calculateDeriv(double x) {
+                return 1 / ((1 + Math.abs(x)) * (1 + Math.abs(x)));
+            }
+        }, new SigmoidFunction(), new ActivationFunction() {
+            @Override
+            public Matrix calculateMatInto(Matrix M, Matrix C) {
+                for (int j = 0; j < M.getM(); j++) {
+                    double sum = 0;
+                    for (int i = 0; i < M.getN(); i++) {
+                        sum += Math.abs(M.get(i, j));
+                    }
+                    for (int i = 0; i < M.getN(); i++) {
+                        C.set(i, j, M.get(i, j) / (1 + sum));
+                    }
+                }
+                return C;
+            }
+
+            @Override
+            public Matrix calculateDerivMat(Matrix M) {
+                throw new UnsupportedOperationException("Not needed for inference");
+            }
+
+            @Override
+            public Matrix mulDerivInPlace(Matrix values, Matrix activations, Matrix C) {
+                throw new UnsupportedOperationException("Not needed for inference");
+            }
+        });
+        checkSoftmaxFreeze();
+        System.out.println("FrozenCheck: frozen predictions match predict");
+    }
+
+    /**
+     * Checks a network with two hidden layers.
+     *
+     * @param first activation function of the first hidden layer
+     * @param second activation function of the second hidden layer
+     * @param output activation function of the output layer
+     */
+    private static void check(ActivationFunction first, ActivationFunction second, ActivationFunction output) {
+        NeuralNetwork net = new NeuralNetwork(new ActivationFunction[]{first, second, output}, new NormalizedInitialization(), INPUTS, 7, 6, 4);
+        FrozenNetwork frozen = net.freeze();
+        String name = first.getClass().getSimpleName() + "/" + second.getClass().getSimpleName() + "/" + output.getClass().getSimpleName();
+        for (int k = 0; k < 50; k++) {
+            double[] in = input();
+            double[] expected = net.predict(new Vector(in.clone())).getArray();
+            compare(expected, frozen.predict(in), name);
+            float[] floatIn = new float[in.length];
+            for (int i = 0; i < in.length; i++) {
+                floatIn[i] = (float) in[i];
+            }
+            compare(expected, frozen.predict(floatIn), name + " float input");
+            int max = 0;
+            for (int i = 1; i < expected.length; i++) {
+                max = expected[i] > expected[max] ? i : max;
+            }
+            float[] result = frozen.predict(in);
+            int predicted = frozen.classify(in);
+            if (predicted != max && result[max] - result[predicted] > TOLERANCE) {
+                throw new AssertionError(name + ": classified as " + predicted + " instead of " + max);
+            }
+        }
+    }
+
+    /**
+     * Checks that a network trained for SoftmaxCrossEntropyCostFunction on an
+     * identity output layer predicts the softmax of its outputs once it is
+     * frozen with the cost function, and the outputs themselves otherwise.
+     */
+    private static void checkSoftmaxFreeze() {
+        NeuralNetwork net = new NeuralNetwork(new ActivationFunction[]{new ReLUFunction(), new IdentityFunction()}, new NormalizedInitialization(), INPUTS, 8, 5);
+        FrozenNetwork raw = net.freeze();
+        FrozenNetwork softmax = net.freeze(new SoftmaxCrossEntropyCostFunction());
+        for (int k = 0; k < 50; k++) {
+            double[] in = input();
+            double[] expected = net.predict(new Vector(in.clone())).getArray();
+            compare(expected, raw.predict(in), "identity output");
+            compare(new SoftmaxFunction().calculateVec(new Vector(expected)).getArray(), softmax.predict(in), "softmax freeze");
+        }
+    }
+
+    /**
+     * Compares a frozen prediction with the prediction of the network.
+     *
+     * @param expected prediction of the network
+     * @param actual prediction of the frozen network
+     * @param name description of the network
+     */
+    private static void compare(double[] expected, float[] actual, String name) {
+        if (expected.length != actual.length) {
+            throw new AssertionError(name + ": " + actual.length + " outputs instead of " + expected.length);
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (Math.abs(expected[i] - actual[i]) > TOLERANCE * Math.max(1, Math.abs(expected[i]))) {
+                throw new AssertionError(name + ": output " + i + " is " + actual[i] + " instead of " + expected[i]);
+            }
+        }
+    }
+
+    /**
+     * Creates an input with random values between -1 and 1, about a third of
+     * them zero so that the skipped inputs are covered.
+     *
+     * @return random input
+     */
+    private static double[] input() {
+        double[] in = new double[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            in[i] = RANDOM.nextInt(3) == 0 ? 0 : RANDOM.nextDouble() * 2 - 1;
+        }
+        return in;
+    }
+}
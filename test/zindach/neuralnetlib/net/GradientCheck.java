@@ -0,0 +1,207 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.net;
+
+import java.util.Random;
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.SparseMatrix;
+import zindach.mathlib.algebra.Vector;
+import zindach.neuralnetlib.options.activation.ActivationFunction;
+import zindach.neuralnetlib.options.activation.ElementWiseActivationFunction;
+import zindach.neuralnetlib.options.activation.FastSigmoidFunction;
+import zindach.neuralnetlib.options.activation.IdentityFunction;
+import zindach.neuralnetlib.options.activation.LeakyReLUFunction;
+import zindach.neuralnetlib.options.activation.ReLUFunction;
+import zindach.neuralnetlib.options.activation.SigmoidFunction;
+import zindach.neuralnetlib.options.activation.SoftmaxFunction;
+import zindach.neuralnetlib.options.activation.TanhFunction;
+import zindach.neuralnetlib.options.cost.CostFunction;
+import zindach.neuralnetlib.options.cost.CrossEntropyCostFunction;
+import zindach.neuralnetlib.options.cost.QuadraticCostFunction;
+import zindach.neuralnetlib.options.cost.SoftmaxCrossEntropyCostFunction;
+import zindach.neuralnetlib.options.initialization.NormalizedInitialization;
+
+/**
+ * Compares the gradients calculated by backpropagation with central finite
+ * differences of the cost. Covers every activation function, the quadratic and
+ * both cross entropy cost functions, dense and sparse input. Also checks that
+ * the vector methods of every activation function match its matrix methods.
+ *
+ * @author ChriZ98
+ */
+public class GradientCheck {
+
+    private static final double H = 1e-5;
+    private static final double TOLERANCE = 1e-6;
+    private static final int BATCH_SIZE = 6;
+    private static final Random RANDOM = new Random(7);
+
+    /**
+     * Main method. Runs all checks and fails with an AssertionError on the
+     * first wrong gradient.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        check(new SigmoidFunction(), new SigmoidFunction(), new CrossEntropyCostFunction());
+        check(new TanhFunction(), new SigmoidFunction(), new QuadraticCostFunction());
+        check(new ReLUFunction(), new IdentityFunction(), new QuadraticCostFunction());
+        check(new LeakyReLUFunction(0.1), new TanhFunction(), new QuadraticCostFunction());
+        check(new SigmoidFunction(), new SoftmaxFunction(), new QuadraticCostFunction());
+        check(new TanhFunction(), new IdentityFunction(), new SoftmaxCrossEntropyCostFunction());
+        check(new ReLUFunction(), new SoftmaxFunction(), new SoftmaxCrossEntropyCostFunction());
+        ActivationFunction[] functions = {new SigmoidFunction(), new FastSigmoidFunction(), new TanhFunction(),
+            new ReLUFunction(), new LeakyReLUFunction(0.1), new IdentityFunction(), new SoftmaxFunction()};
+        for (ActivationFunction f : functions) {
+            checkVectors(f);
+        }
+        System.out.println("GradientCheck: all gradients match");
+    }
+
+    /**
+     * Checks the gradients of a network with one hidden layer.
+     *
+     * @param hidden activation function of the hidden layer
+     * @param output activation function of the output layer
+     * @param costFunction cost function
+     */
+    private static void check(ActivationFunction hidden, ActivationFunction output, CostFunction costFunction) {
+        NeuralNetwork net = new NeuralNetwork(new ActivationFunction[]{hidden, output}, new NormalizedInitialization(), 5, 4, 3);
+        for (Matrix weights : net.getWeights()) {
+            randomize(weights);
+        }
+        for (Vector bias : net.getBiases()) {
+            double[] b = bias.getArray();
+            for (int i = 0; i < b.length; i++) {
+                b[i] = RANDOM.nextDouble() - 0.5;
+            }
+        }
+        Matrix in = new Matrix(5, BATCH_SIZE);
+        Matrix out = new Matrix(3, BATCH_SIZE);
+        for (int j = 0; j < BATCH_SIZE; j++) {
+            for (int i = 0; i < 5; i++) {
+                in.set(i, j, RANDOM.nextBoolean() ? RANDOM.nextDouble() : 0);
+            }
+            out.set(RANDOM.nextInt(3), j, 1);
+        }
+        String name = hidden.getClass().getSimpleName() + "/" + output.getClass().getSimpleName()
+                + "/" + costFunction.getClass().getSimpleName();
+
+        NetworkWorkspace ws = new NetworkWorkspace(net, BATCH_SIZE);
+        net.backpropagate(in, out, ws, costFunction);
+        compare(net, in, out, costFunction, ws, name + " dense");
+        NetworkWorkspace sparseWs = new NetworkWorkspace(net, BATCH_SIZE);
+        net.backpropagate(new SparseMatrix(in), out, sparseWs, costFunction);
+        compare(net, in, out, costFunction, sparseWs, name + " sparse");
+    }
+
+    /**
+     * Compares the vector methods of an activation function with its matrix
+     * methods applied to one column, and the single value methods of element
+     * wise functions with the vector methods.
+     *
+     * @param f activation function to check
+     */
+    private static void checkVectors(ActivationFunction f) {
+        Vector v = new Vector(7);
+        double[] a = v.getArray();
+        for (int i = 0; i < a.length; i++) {
+            a[i] = RANDOM.nextDouble() * 6 - 3;
+        }
+        Matrix column = new Matrix(a.length, 1, a.clone());
+        double[] y = f.calculateVec(v).getArray();
+        double[] d = f.calculateDerivVec(v).getArray();
+        Matrix yMat = f.calculateMat(column), dMat = f.calculateDerivMat(column);
+        String name = f.getClass().getSimpleName();
+        for (int i = 0; i < a.length; i++) {
+            assertClose(yMat.get(i, 0), y[i], name + " calculateVec (" + i + ")");
+            assertClose(dMat.get(i, 0), d[i], name + " calculateDerivVec (" + i + ")");
+            if (f instanceof ElementWiseActivationFunction) {
+                ElementWiseActivationFunction e = (ElementWiseActivationFunction) f;
+                assertClose(y[i], e.applyAsDouble(a[i]), name + " applyAsDouble (" + i + ")");
+                assertClose(d[i], e.calculateDeriv(a[i]), name + " calculateDeriv (" + i + ")");
+            }
+        }
+    }
+
+    /**
+     * Compares the gradients of a workspace with finite differences of the
+     * summed cost.
+     *
+     * @param net network
+     * @param in input data
+     * @param out output data
+     * @param costFunction cost function
+     * @param ws workspace holding the backpropagated gradients
+     * @param name name of the check
+     */
+    private static void compare(NeuralNetwork net, Matrix in, Matrix out, CostFunction costFunction, NetworkWorkspace ws, String name) {
+        for (int l = 0; l < net.getWeights().length; l++) {
+            Matrix weights = net.getWeights()[l];
+            for (int i = 0; i < weights.getN(); i++) {
+                for (int j = 0; j < weights.getM(); j++) {
+                    double w = weights.get(i, j);
+                    weights.set(i, j, w + H);
+                    double plus = cost(net, in, out, costFunction);
+                    weights.set(i, j, w - H);
+                    double minus = cost(net, in, out, costFunction);
+                    weights.set(i, j, w);
+                    assertClose((plus - minus) / (2 * H), ws.getWeightErrors()[l].get(i, j), name + " weight " + l + " (" + i + ", " + j + ")");
+                }
+            }
+            double[] b = net.getBiases()[l].getArray();
+            for (int i = 0; i < b.length; i++) {
+                double value = b[i];
+                b[i] = value + H;
+                double plus = cost(net, in, out, costFunction);
+                b[i] = value - H;
+                double minus = cost(net, in, out, costFunction);
+                b[i] = value;
+                assertClose((plus - minus) / (2 * H), ws.getBiasErrors()[l].getArray()[i], name + " bias " + l + " (" + i + ")");
+            }
+        }
+    }
+
+    /**
+     * Calculates the summed cost of all examples, which is the cost the
+     * gradients are summed for.
+     *
+     * @param net network
+     * @param in input data
+     * @param out output data
+     * @param costFunction cost function
+     * @return summed cost
+     */
+    private static double cost(NeuralNetwork net, Matrix in, Matrix out, CostFunction costFunction) {
+        return costFunction.calculateTotal(net, in, out) * in.getM();
+    }
+
+    /**
+     * Fails if a gradient differs from its finite difference.
+     *
+     * @param expected finite difference
+     * @param actual backpropagated gradient
+     * @param name description of the gradient
+     */
+    private static void assertClose(double expected, double actual, String name) {
+        if (Math.abs(expected - actual) > TOLERANCE * Math.max(1, Math.abs(expected))) {
+            throw new AssertionError(name + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * Sets all values of a matrix to random values between -1 and 1.
+     *
+     * @param A matrix to change
+     */
+    private static void randomize(Matrix A) {
+        for (int i = 0; i < A.getN(); i++) {
+            for (int j = 0; j < A.getM(); j++) {
+                A.set(i, j, RANDOM.nextDouble() * 2 - 1);
+            }
+        }
+    }
+}
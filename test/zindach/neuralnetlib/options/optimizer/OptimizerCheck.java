@@ -0,0 +1,235 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.optimizer;
+
+import java.util.Random;
+import zindach.mathlib.algebra.Matrix;
+import zindach.neuralnetlib.net.NetworkWorkspace;
+import zindach.neuralnetlib.net.NeuralNetwork;
+import zindach.neuralnetlib.options.cost.CostFunction;
+import zindach.neuralnetlib.options.cost.CrossEntropyCostFunction;
+
+/**
+ * Checks the optimizers. Every optimizer minimizes a quadratic function and
+ * is compared step by step with the textbook form of its update rule. Then
+ * every optimizer trains a small network, whose cost has to decrease.
+ *
+ * @author ChriZ98
+ */
+public class OptimizerCheck {
+
+    private static final int LENGTH = 4;
+    private static final int STEPS = 50;
+    private static final int BATCH_SIZE = 2;
+    private static final double LEARNING_RATE = 0.05;
+    private static final double MU = 0.9;
+    private static final double[] CURVATURE = {0.5, 1, 2, 4};
+    private static final double[] TARGET = {1, -2, 0.5, 3};
+
+    /**
+     * Main method. Runs all checks and fails with an AssertionError on the
+     * first wrong result.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        checkGradientDescent();
+        checkMomentum();
+        checkNesterov();
+        checkRMSProp();
+        checkAdam();
+        checkTraining(new GradientDescentOptimizer(), 2);
+        checkTraining(new MomentumOptimizer(), 0.2);
+        checkTraining(new NesterovOptimizer(), 0.2);
+        checkTraining(new RMSPropOptimizer(), 0.01);
+        checkTraining(new AdamOptimizer(), 0.02);
+        System.out.println("OptimizerCheck: all optimizers match their update rules");
+    }
+
+    /**
+     * Compares gradient descent with p = p - lr g.
+     */
+    private static void checkGradientDescent() {
+        Optimizer optimizer = new GradientDescentOptimizer();
+        double[][] state = new double[optimizer.getStateCount()][LENGTH];
+        double[] p = new double[LENGTH], expected = new double[LENGTH];
+        for (int step = 1; step <= STEPS; step++) {
+            optimizer.update(p, 0, summedGradient(p), 0, LENGTH, state, LEARNING_RATE, 1.0 / BATCH_SIZE, step);
+            for (int k = 0; k < LENGTH; k++) {
+                expected[k] -= LEARNING_RATE * gradient(expected, k);
+            }
+            assertClose(expected, p, "GradientDescentOptimizer step " + step);
+        }
+    }
+
+    /**
+     * Compares momentum with v = mu v - lr g and p = p + v.
+     */
+    private static void checkMomentum() {
+        Optimizer optimizer = new MomentumOptimizer(MU);
+        double[][] state = new double[optimizer.getStateCount()][LENGTH];
+        double[] p = new double[LENGTH], expected = new double[LENGTH], v = new double[LENGTH];
+        for (int step = 1; step <= STEPS; step++) {
+            optimizer.update(p, 0, summedGradient(p), 0, LENGTH, state, LEARNING_RATE, 1.0 / BATCH_SIZE, step);
+            double[] g = new double[LENGTH];
+            for (int k = 0; k < LENGTH; k++) {
+                g[k] = gradient(expected, k);
+            }
+            for (int k = 0; k < LENGTH; k++) {
+                v[k] = MU * v[k] - LEARNING_RATE * g[k];
+                expected[k] += v[k];
+            }
+            assertClose(expected, p, "MomentumOptimizer step " + step);
+        }
+    }
+
+    /**
+     * Compares Nesterov momentum with v = mu v - lr g(p + mu v) and p = p + v.
+     * The optimizer stores the parameters at the look ahead point p + mu v.
+     */
+    private static void checkNesterov() {
+        Optimizer optimizer = new NesterovOptimizer(MU);
+        double[][] state = new double[optimizer.getStateCount()][LENGTH];
+        double[] p = new double[LENGTH], expected = new double[LENGTH], v = new double[LENGTH];
+        for (int step = 1; step <= STEPS; step++) {
+            optimizer.update(p, 0, summedGradient(p), 0, LENGTH, state, LEARNING_RATE, 1.0 / BATCH_SIZE, step);
+            double[] ahead = new double[LENGTH];
+            for (int k = 0; k < LENGTH; k++) {
+                ahead[k] = expected[k] + MU * v[k];
+            }
+            double[] lookAhead = new double[LENGTH];
+            for (int k = 0; k < LENGTH; k++) {
+                v[k] = MU * v[k] - LEARNING_RATE * gradient(ahead, k);
+                expected[k] += v[k];
+                lookAhead[k] = expected[k] + MU * v[k];
+            }
+            assertClose(lookAhead, p, "NesterovOptimizer step " + step);
+        }
+    }
+
+    /**
+     * Compares RMSProp with s = d s + (1 - d) g^2 and p = p - lr g / (sqrt(s)
+     * + eps).
+     */
+    private static void checkRMSProp() {
+        double decay = 0.9, epsilon = 1e-8;
+        Optimizer optimizer = new RMSPropOptimizer(decay, epsilon);
+        double[][] state = new double[optimizer.getStateCount()][LENGTH];
+        double[] p = new double[LENGTH], expected = new double[LENGTH], s = new double[LENGTH];
+        for (int step = 1; step <= STEPS; step++) {
+            optimizer.update(p, 0, summedGradient(p), 0, LENGTH, state, LEARNING_RATE, 1.0 / BATCH_SIZE, step);
+            for (int k = 0; k < LENGTH; k++) {
+                double g = gradient(expected, k);
+                s[k] = decay * s[k] + (1 - decay) * g * g;
+                expected[k] -= LEARNING_RATE * g / (Math.sqrt(s[k]) + epsilon);
+            }
+            assertClose(expected, p, "RMSPropOptimizer step " + step);
+        }
+    }
+
+    /**
+     * Compares Adam with the bias corrected moments m / (1 - b1^t) and v / (1
+     * - b2^t) and p = p - lr m / (sqrt(v) + eps).
+     */
+    private static void checkAdam() {
+        double beta1 = 0.9, beta2 = 0.999, epsilon = 1e-8;
+        Optimizer optimizer = new AdamOptimizer(beta1, beta2, epsilon);
+        double[][] state = new double[optimizer.getStateCount()][LENGTH];
+        double[] p = new double[LENGTH], expected = new double[LENGTH];
+        double[] m = new double[LENGTH], v = new double[LENGTH];
+        for (int step = 1; step <= STEPS; step++) {
+            optimizer.update(p, 0, summedGradient(p), 0, LENGTH, state, LEARNING_RATE, 1.0 / BATCH_SIZE, step);
+            for (int k = 0; k < LENGTH; k++) {
+                double g = gradient(expected, k);
+                m[k] = beta1 * m[k] + (1 - beta1) * g;
+                v[k] = beta2 * v[k] + (1 - beta2) * g * g;
+                double mHat = m[k] / (1 - Math.pow(beta1, step));
+                double vHat = v[k] / (1 - Math.pow(beta2, step));
+                expected[k] -= LEARNING_RATE * mHat / (Math.sqrt(vHat) + epsilon);
+            }
+            assertClose(expected, p, "AdamOptimizer step " + step);
+        }
+    }
+
+    /**
+     * Trains a small network with an optimizer on a fixed batch and checks
+     * that the cost drops to less than half.
+     *
+     * @param optimizer optimizer to check
+     * @param learningRate learning rate
+     */
+    private static void checkTraining(Optimizer optimizer, double learningRate) {
+        Random random = new Random(3);
+        NeuralNetwork net = new NeuralNetwork(4, 6, 2);
+        for (Matrix weights : net.getWeights()) {
+            for (int i = 0; i < weights.getN(); i++) {
+                for (int j = 0; j < weights.getM(); j++) {
+                    weights.set(i, j, random.nextGaussian() * 0.5);
+                }
+            }
+        }
+        int n = 16;
+        Matrix in = new Matrix(4, n), out = new Matrix(2, n);
+        for (int j = 0; j < n; j++) {
+            for (int i = 0; i < 4; i++) {
+                in.set(i, j, random.nextDouble());
+            }
+            out.set(in.get(0, j) + in.get(1, j) > in.get(2, j) + in.get(3, j) ? 0 : 1, j, 1);
+        }
+        CostFunction costFunction = new CrossEntropyCostFunction();
+        NetworkWorkspace ws = new NetworkWorkspace(net, n);
+        double initial = costFunction.calculateTotal(net, in, out);
+        for (int step = 0; step < 300; step++) {
+            net.backpropagate(in, out, ws, costFunction);
+            optimizer.update(net, ws.getWeightErrors(), ws.getBiasErrors(), learningRate, n);
+        }
+        double trained = costFunction.calculateTotal(net, in, out);
+        if (!(trained < initial / 2)) {
+            throw new AssertionError(optimizer.getClass().getSimpleName() + " did not train: cost " + initial + " -> " + trained);
+        }
+    }
+
+    /**
+     * Calculates the gradient of 1/2 a (p - c)^2 for one parameter.
+     *
+     * @param p parameters
+     * @param k index of the parameter
+     * @return gradient
+     */
+    private static double gradient(double[] p, int k) {
+        return CURVATURE[k] * (p[k] - TARGET[k]);
+    }
+
+    /**
+     * Calculates the gradients of all parameters summed over a batch of equal
+     * examples, as the optimizers get them from backpropagation.
+     *
+     * @param p parameters
+     * @return summed gradients
+     */
+    private static double[] summedGradient(double[] p) {
+        double[] g = new double[LENGTH];
+        for (int k = 0; k < LENGTH; k++) {
+            g[k] = BATCH_SIZE * gradient(p, k);
+        }
+        return g;
+    }
+
+    /**
+     * Fails if the parameters differ from the expected parameters.
+     *
+     * @param expected parameters of the textbook rule
+     * @param actual parameters of the optimizer
+     * @param name description of the check
+     */
+    private static void assertClose(double[] expected, double[] actual, String name) {
+        for (int k = 0; k < LENGTH; k++) {
+            if (Math.abs(expected[k] - actual[k]) > 1e-9 * Math.max(1, Math.abs(expected[k]))) {
+                throw new AssertionError(name + " parameter " + k + ": expected " + expected[k] + " but was " + actual[k]);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.options.schedule;
+
+/**
+ * Checks the learning rate schedules. Every schedule is compared with its
+ * formula for a range of epochs. The warm restarts are checked at the start
+ * and inside of every period and with periods too long for an int, and the
+ * constructors have to reject invalid parameters.
+ *
+ * @author ChriZ98
+ */
+public class ScheduleCheck {
+
+    private static final double EPSILON = 1e-12;
+    private static final double RATE = 0.5;
+    private static final int EPOCHS = 30;
+
+    /**
+     * Main method. Runs all checks and fails with an AssertionError on the
+     * first wrong result.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        checkConstant();
+        checkStep();
+        checkExponential();
+        checkCosine();
+        checkWarmRestart();
+        checkOverflow();
+        checkInvalid();
+        System.out.println("ScheduleCheck: all schedules match their formulas");
+    }
+
+    /**
+     * Checks that the constant schedule keeps the learning rate.
+     */
+    private static void checkConstant() {
+        LearningRateSchedule schedule = new ConstantSchedule();
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            assertClose(RATE, schedule.getLearningRate(RATE, epoch, EPOCHS), "ConstantSchedule epoch " + epoch);
+        }
+    }
+
+    /**
+     * Compares the step schedule with rate * factor^(epoch / stepSize).
+     */
+    private static void checkStep() {
+        LearningRateSchedule schedule = new StepSchedule(3, 0.5);
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            double expected = RATE;
+            for (int k = 0; k < epoch / 3; k++) {
+                expected *= 0.5;
+            }
+            assertClose(expected, schedule.getLearningRate(RATE, epoch, EPOCHS), "StepSchedule epoch " + epoch);
+        }
+    }
+
+    /**
+     * Compares the exponential schedule with rate * decay^epoch.
+     */
+    private static void checkExponential() {
+        LearningRateSchedule schedule = new ExponentialSchedule(0.9);
+        double expected = RATE;
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            assertClose(expected, schedule.getLearningRate(RATE, epoch, EPOCHS), "ExponentialSchedule epoch " + epoch);
+            expected *= 0.9;
+        }
+    }
+
+    /**
+     * Checks that the cosine schedule starts at the learning rate, ends at the
+     * minimum, passes the middle halfway and decreases in between.
+     */
+    private static void checkCosine() {
+        double min = 0.01;
+        LearningRateSchedule schedule = new CosineSchedule(min);
+        assertClose(RATE, schedule.getLearningRate(RATE, 0, EPOCHS + 1), "CosineSchedule first epoch");
+        assertClose((RATE + min) / 2, schedule.getLearningRate(RATE, EPOCHS / 2, EPOCHS + 1), "CosineSchedule middle epoch");
+        assertClose(min, schedule.getLearningRate(RATE, EPOCHS, EPOCHS + 1), "CosineSchedule last epoch");
+        assertClose(RATE, schedule.getLearningRate(RATE, 0, 1), "CosineSchedule single epoch");
+        for (int epoch = 1; epoch <= EPOCHS; epoch++) {
+            if (!(schedule.getLearningRate(RATE, epoch, EPOCHS + 1) < schedule.getLearningRate(RATE, epoch - 1, EPOCHS + 1))) {
+                throw new AssertionError("CosineSchedule does not decrease at epoch " + epoch);
+            }
+        }
+    }
+
+    /**
+     * Compares warm restarts with periods of 2, 4, 8 and 16 epochs and with
+     * periods of equal length with the cosine of the current period.
+     */
+    private static void checkWarmRestart() {
+        double min = 0.01;
+        int[][] cases = {{2, 2}, {3, 1}, {1, 3}};
+        for (int[] c : cases) {
+            LearningRateSchedule schedule = new WarmRestartSchedule(c[0], c[1], min);
+            int start = 0, length = c[0];
+            for (int epoch = 0; epoch < EPOCHS; epoch++) {
+                if (epoch == start + length) {
+                    start += length;
+                    length *= c[1];
+                }
+                double expected = min + (RATE - min) * (1 + Math.cos(Math.PI * (epoch - start) / length)) / 2;
+                assertClose(expected, schedule.getLearningRate(RATE, epoch, EPOCHS),
+                        "WarmRestartSchedule(" + c[0] + ", " + c[1] + ") epoch " + epoch);
+            }
+        }
+    }
+
+    /**
+     * Checks that periods longer than an int neither overflow nor loop
+     * forever.
+     */
+    private static void checkOverflow() {
+        double min = 0.01;
+        double[] rates = {
+            new WarmRestartSchedule(1, Integer.MAX_VALUE, min).getLearningRate(RATE, Integer.MAX_VALUE - 1, EPOCHS),
+            new WarmRestartSchedule(Integer.MAX_VALUE, 2, min).getLearningRate(RATE, Integer.MAX_VALUE - 1, EPOCHS),
+            new WarmRestartSchedule(3, 2, min).getLearningRate(RATE, Integer.MAX_VALUE, EPOCHS)
+        };
+        for (double rate : rates) {
+            if (!(rate >= min && rate <= RATE)) {
+                throw new AssertionError("WarmRestartSchedule overflows: " + rate);
+            }
+        }
+    }
+
+    /**
+     * Checks that invalid step sizes, periods and multipliers are rejected.
+     */
+    private static void checkInvalid() {
+        assertInvalid(() -> new StepSchedule(0, 0.5), "StepSchedule step size 0");
+        assertInvalid(() -> new WarmRestartSchedule(0, 2, 0), "WarmRestartSchedule period 0");
+        assertInvalid(() -> new WarmRestartSchedule(-1, 2, 0), "WarmRestartSchedule period -1");
+        assertInvalid(() -> new WarmRestartSchedule(2, 0, 0), "WarmRestartSchedule multiplier 0");
+    }
+
+    /**
+     * Fails if creating a schedule does not throw an
+     * IllegalArgumentException.
+     *
+     * @param constructor creates the schedule
+     * @param name description of the check
+     */
+    private static void assertInvalid(Runnable constructor, String name) {
+        try {
+            constructor.run();
+        } catch (IllegalArgumentException ex) {
+            return;
+        }
+        throw new AssertionError(name + " was accepted");
+    }
+
+    /**
+     * Fails if a learning rate differs from the expected one.
+     *
+     * @param expected expected learning rate
+     * @param actual learning rate of the schedule
+     * @param name description of the check
+     */
+    private static void assertClose(double expected, double actual, String name) {
+        if (Math.abs(expected - actual) > EPSILON) {
+            throw new AssertionError(name + ": expected " + expected + " but was " + actual);
+        }
+    }
+}
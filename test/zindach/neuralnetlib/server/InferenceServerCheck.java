@@ -0,0 +1,243 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import zindach.mathlib.algebra.Vector;
+import zindach.neuralnetlib.net.NeuralNetwork;
+
+/**
+ * Checks that MicroBatcher and InferenceServer answer every request with the
+ * same output as NeuralNetwork.predict, also when many clients send requests
+ * at the same time, and that invalid requests are rejected.
+ *
+ * @author ChriZ98
+ */
+public class InferenceServerCheck {
+
+    private static final int INPUTS = 12;
+    private static final int CLIENTS = 8;
+    private static final int REQUESTS = 200;
+    private static final double EPSILON = 1e-12;
+
+    /**
+     * Main method. Runs all checks and fails with an AssertionError on the
+     * first wrong result.
+     *
+     * @param args not used
+     * @throws Exception if a request fails
+     */
+    public static void main(String[] args) throws Exception {
+        NeuralNetwork net = new NeuralNetwork(INPUTS, 7, 4);
+        checkBatcher(net);
+        checkServer(net);
+        System.out.println("InferenceServerCheck: batcher and server answers correct");
+    }
+
+    /**
+     * Submits requests from several threads and compares every result with
+     * predict. Also checks the statistics, invalid inputs and that close
+     * calculates the requests that are already queued.
+     *
+     * @param net network to serve
+     * @throws Exception if a request fails
+     */
+    private static void checkBatcher(NeuralNetwork net) throws Exception {
+        MicroBatcher batcher = new MicroBatcher(net, 16, 500);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<?>> done = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            long seed = c;
+            done.add(clients.submit(() -> {
+                Random random = new Random(seed);
+                for (int k = 0; k < REQUESTS; k++) {
+                    Vector in = random(random);
+                    compare(net.predict(in).getArray(), batcher.submit(in).get().getArray(), "MicroBatcher");
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : done) {
+            f.get();
+        }
+        clients.shutdown();
+        if (batcher.getStats().getRequests() != CLIENTS * REQUESTS) {
+            throw new AssertionError("Statistics count " + batcher.getStats().getRequests() + " requests instead of " + CLIENTS * REQUESTS);
+        }
+        try {
+            batcher.submit(new Vector(INPUTS + 1));
+            throw new AssertionError("Input of wrong size was accepted");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        Random random = new Random(42);
+        List<CompletableFuture<Vector>> queued = new ArrayList<>();
+        List<Vector> inputs = new ArrayList<>();
+        for (int k = 0; k < 100; k++) {
+            inputs.add(random(random));
+            queued.add(batcher.submit(inputs.get(k)));
+        }
+        batcher.close();
+        for (int k = 0; k < queued.size(); k++) {
+            if (!queued.get(k).isDone()) {
+                throw new AssertionError("Queued request was not calculated by close");
+            }
+            compare(net.predict(inputs.get(k)).getArray(), queued.get(k).get().getArray(), "MicroBatcher after close");
+        }
+        try {
+            batcher.submit(inputs.get(0));
+            throw new AssertionError("Closed batcher accepted a request");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Sends requests over several connections and compares the answers with
+     * predict. Also checks the answers to STATS and to invalid lines.
+     *
+     * @param net network to serve
+     * @throws Exception if a connection fails
+     */
+    private static void checkServer(NeuralNetwork net) throws Exception {
+        try (InferenceServer server = new InferenceServer(net, 0, 16, 500)) {
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+            List<Future<?>> done = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                long seed = 100 + c;
+                done.add(clients.submit(() -> {
+                    Random random = new Random(seed);
+                    try (Connection connection = new Connection(server.getPort())) {
+                        for (int k = 0; k < REQUESTS / 4; k++) {
+                            Vector in = random(random);
+                            StringBuilder line = new StringBuilder();
+                            for (double value : in.getArray()) {
+                                line.append(value).append(k % 2 == 0 ? " " : ",");
+                            }
+                            String[] tokens = connection.request(line.toString().trim()).split(" ");
+                            double[] result = new double[tokens.length];
+                            for (int i = 0; i < tokens.length; i++) {
+                                result[i] = Double.parseDouble(tokens[i]);
+                            }
+                            compare(net.predict(in).getArray(), result, "InferenceServer");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+            clients.shutdown();
+            try (Connection connection = new Connection(server.getPort())) {
+                expectError(connection.request("1 2 3"), "input of wrong size");
+                expectError(connection.request("abc"), "input that is not a number");
+                String stats = connection.request("STATS");
+                if (stats == null || stats.isEmpty() || stats.startsWith("ERROR")) {
+                    throw new AssertionError("STATS was answered with " + stats);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fails if an answer is not an error.
+     *
+     * @param answer answer of the server
+     * @param request description of the request
+     */
+    private static void expectError(String answer, String request) {
+        if (answer == null || !answer.startsWith("ERROR")) {
+            throw new AssertionError("Server answered " + request + " with " + answer);
+        }
+    }
+
+    /**
+     * Compares a served result with the result of predict.
+     *
+     * @param expected result of predict
+     * @param actual served result
+     * @param name name of the checked class
+     */
+    private static void compare(double[] expected, double[] actual, String name) {
+        if (expected.length != actual.length) {
+            throw new AssertionError(name + " returned " + actual.length + " outputs instead of " + expected.length);
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (Math.abs(expected[i] - actual[i]) > EPSILON) {
+                throw new AssertionError(name + " output " + i + " is " + actual[i] + " instead of " + expected[i]);
+            }
+        }
+    }
+
+    /**
+     * Creates an input vector with random values between -1 and 1.
+     *
+     * @param random random number generator
+     * @return random input
+     */
+    private static Vector random(Random random) {
+        double[] values = new double[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            values[i] = random.nextDouble() * 2 - 1;
+        }
+        return new Vector(values);
+    }
+
+    /**
+     * Client connection to the server.
+     */
+    private static class Connection implements AutoCloseable {
+
+        private final Socket socket;
+        private final PrintWriter writer;
+        private final BufferedReader reader;
+
+        /**
+         * Connects to the server on the loopback address.
+         *
+         * @param port port of the server
+         * @throws IOException if the connection fails
+         */
+        Connection(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Sends a request line and waits for the answer.
+         *
+         * @param line request line
+         * @return answer line
+         * @throws IOException if the connection fails
+         */
+        String request(String line) throws IOException {
+            writer.println(line);
+            return reader.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
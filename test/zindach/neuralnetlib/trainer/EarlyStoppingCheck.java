@@ -0,0 +1,195 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.trainer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import zindach.mathlib.algebra.Matrix;
+import zindach.neuralnetlib.net.NeuralNetwork;
+import zindach.neuralnetlib.options.cost.CostFunction;
+import zindach.neuralnetlib.options.cost.CrossEntropyCostFunction;
+import zindach.neuralnetlib.options.regularization.L2Regularization;
+
+/**
+ * Checks early stopping. A fixed sequence of costs has to stop training after
+ * the patience is used up and keep the best epoch, improvements smaller than
+ * the minimum do not count, and the weights of the best epoch have to be
+ * restored. A trainer with early stopping has to refuse to train without
+ * validation data and has to end with the weights of the best validation
+ * cost, with and without evaluation in the background on a pool of its own.
+ *
+ * @author ChriZ98
+ */
+public class EarlyStoppingCheck {
+
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Main method. Runs all checks and fails with an AssertionError on the
+     * first wrong result.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        checkPatience();
+        checkMinDelta();
+        checkRestore();
+        checkTrainer(false);
+        checkTrainer(true);
+        System.out.println("EarlyStoppingCheck: patience, best epoch and restore correct");
+    }
+
+    /**
+     * Checks that training stops once the cost did not improve for as many
+     * epochs as the patience and that the best epoch is kept.
+     */
+    private static void checkPatience() {
+        double[] costs = {5, 4, 4.5, 3, 3.5, 3.2};
+        EarlyStopping earlyStopping = new EarlyStopping(2);
+        NeuralNetwork net = new NeuralNetwork(2, 3, 2);
+        for (int epoch = 0; epoch < costs.length; epoch++) {
+            boolean stop = earlyStopping.update(net, costs[epoch], epoch);
+            if (stop != (epoch == costs.length - 1)) {
+                throw new AssertionError("Patience: update returned " + stop + " at epoch " + epoch);
+            }
+        }
+        if (earlyStopping.getBestEpoch() != 3 || earlyStopping.getBestCost() != 3) {
+            throw new AssertionError("Patience: best epoch " + earlyStopping.getBestEpoch()
+                    + " with cost " + earlyStopping.getBestCost() + " instead of 3 with cost 3");
+        }
+        earlyStopping.reset();
+        if (earlyStopping.getBestEpoch() != -1 || earlyStopping.getBestCost() != Double.POSITIVE_INFINITY) {
+            throw new AssertionError("Patience: reset kept the best epoch " + earlyStopping.getBestEpoch());
+        }
+    }
+
+    /**
+     * Checks that a decrease smaller than the minimum is no improvement.
+     */
+    private static void checkMinDelta() {
+        EarlyStopping earlyStopping = new EarlyStopping(1, 0.1, false);
+        NeuralNetwork net = new NeuralNetwork(2, 3, 2);
+        if (earlyStopping.update(net, 1, 0) || !earlyStopping.update(net, 0.95, 1)) {
+            throw new AssertionError("MinDelta: a decrease of 0.05 counted as improvement");
+        }
+        if (earlyStopping.getBestEpoch() != 0) {
+            throw new AssertionError("MinDelta: best epoch " + earlyStopping.getBestEpoch() + " instead of 0");
+        }
+    }
+
+    /**
+     * Checks that the weights of the best epoch are restored and that they
+     * are left alone if restoring is disabled.
+     */
+    private static void checkRestore() {
+        double[] costs = {3, 1, 2, 4};
+        for (boolean restore : new boolean[]{true, false}) {
+            EarlyStopping earlyStopping = new EarlyStopping(10, 0, restore);
+            NeuralNetwork net = new NeuralNetwork(2, 3, 2);
+            for (int epoch = 0; epoch < costs.length; epoch++) {
+                fill(net, epoch);
+                earlyStopping.update(net, costs[epoch], epoch);
+            }
+            earlyStopping.restore(net);
+            double expected = restore ? 1 : costs.length - 1;
+            for (int i = 0; i < net.getWeights().length; i++) {
+                Matrix weights = net.getWeights()[i];
+                for (int r = 0; r < weights.getN(); r++) {
+                    for (int c = 0; c < weights.getM(); c++) {
+                        if (weights.get(r, c) != expected || net.getBiases()[i].getArray()[r] != expected) {
+                            throw new AssertionError("Restore " + restore + ": layer " + i + " has weight "
+                                    + weights.get(r, c) + " instead of " + expected);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Trains a small network with early stopping and checks that it ends with
+     * the weights of the best validation cost.
+     *
+     * @param async if true the epochs are evaluated in the background on a
+     * pool of its own
+     */
+    private static void checkTrainer(boolean async) {
+        Random random = new Random(5);
+        Matrix in = new Matrix(4, 200), out = new Matrix(2, 200);
+        Matrix validationIn = new Matrix(4, 50), validationOut = new Matrix(2, 50);
+        fillData(random, in, out);
+        fillData(random, validationIn, validationOut);
+        NeuralNetwork net = new NeuralNetwork(4, 6, 2);
+        CostFunction costFunction = new CrossEntropyCostFunction();
+        Trainer trainer = new StochasticGradientDescentTrainer(net, costFunction, new L2Regularization());
+        EarlyStopping earlyStopping = new EarlyStopping(2);
+        trainer.setTrainingData(in, out);
+        trainer.setTestData(validationIn, validationOut);
+        trainer.setEarlyStopping(earlyStopping);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        if (async) {
+            trainer.setAsyncEvaluation((epoch, training, test) -> {
+            }, pool);
+        }
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            try {
+                trainer.train(20, 2, 0.1, 10, false);
+                throw new AssertionError("Trainer " + async + ": trained without validation data");
+            } catch (IllegalStateException ex) {
+                // expected
+            }
+            trainer.setValidationData(validationIn, validationOut);
+            trainer.train(20, 2, 0.1, 10, false);
+        } finally {
+            System.setOut(stdout);
+            pool.shutdown();
+        }
+        double cost = new Evaluator(net, costFunction).evaluate(validationIn, validationOut).getCost();
+        if (earlyStopping.getBestEpoch() < 0 || Math.abs(cost - earlyStopping.getBestCost()) > EPSILON) {
+            throw new AssertionError("Trainer " + async + ": validation cost " + cost
+                    + " instead of the best cost " + earlyStopping.getBestCost());
+        }
+    }
+
+    /**
+     * Sets all weights and biases of a network to one value.
+     *
+     * @param net network to change
+     * @param value new value
+     */
+    private static void fill(NeuralNetwork net, double value) {
+        for (int i = 0; i < net.getWeights().length; i++) {
+            Matrix weights = net.getWeights()[i];
+            for (int r = 0; r < weights.getN(); r++) {
+                for (int c = 0; c < weights.getM(); c++) {
+                    weights.set(r, c, value);
+                }
+                net.getBiases()[i].getArray()[r] = value;
+            }
+        }
+    }
+
+    /**
+     * Fills a data set with random inputs. The class of an example depends
+     * on which half of the inputs has the larger sum.
+     *
+     * @param random random number generator
+     * @param in inputs to fill
+     * @param out expected outputs to fill
+     */
+    private static void fillData(Random random, Matrix in, Matrix out) {
+        for (int j = 0; j < in.getM(); j++) {
+            for (int i = 0; i < in.getN(); i++) {
+                in.set(i, j, random.nextDouble());
+            }
+            out.set(in.get(0, j) + in.get(1, j) > in.get(2, j) + in.get(3, j) ? 0 : 1, j, 1);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.trainer;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.OffHeapMatrix;
+import zindach.neuralnetlib.net.NeuralNetwork;
+import zindach.neuralnetlib.options.cost.CostFunction;
+import zindach.neuralnetlib.options.cost.CrossEntropyCostFunction;
+
+/**
+ * Compares the accuracy, cost and confusion matrix calculated by Evaluator
+ * with a plain feedforward of the whole data set, for data on and off the
+ * heap, on the common pool and on a pool of its own. The data set spans
+ * several chunks, including a partial last one.
+ *
+ * @author ChriZ98
+ */
+public class EvaluatorCheck {
+
+    private static final int SIZE = 3000;
+    private static final int INPUTS = 20;
+    private static final int CLASSES = 5;
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Main method. Runs all checks and fails with an AssertionError on the
+     * first wrong result.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        Matrix in = new Matrix(INPUTS, SIZE), out = new Matrix(CLASSES, SIZE);
+        for (int j = 0; j < SIZE; j++) {
+            for (int i = 0; i < INPUTS; i++) {
+                in.set(i, j, random.nextGaussian());
+            }
+            out.set(random.nextInt(CLASSES), j, 1);
+        }
+        NeuralNetwork net = new NeuralNetwork(INPUTS, 8, CLASSES);
+        CostFunction costFunction = new CrossEntropyCostFunction();
+        Evaluator evaluator = new Evaluator(net, costFunction);
+
+        int[][] confusion = new int[CLASSES][CLASSES];
+        Matrix result = net.feedforward(in);
+        for (int j = 0; j < SIZE; j++) {
+            confusion[argmax(out, j)][argmax(result, j)]++;
+        }
+        double cost = costFunction.calculateTotal(net, in, out);
+
+        check(evaluator.evaluate(in, out), confusion, cost, "heap");
+        try (OffHeapMatrix offHeapIn = new OffHeapMatrix(in); OffHeapMatrix offHeapOut = new OffHeapMatrix(out)) {
+            check(evaluator.evaluate(offHeapIn, offHeapOut), confusion, cost, "off heap");
+        }
+
+        AtomicInteger workers = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(2, p -> {
+            workers.incrementAndGet();
+            return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+        }, null, false);
+        try {
+            Evaluator poolEvaluator = new Evaluator(net, costFunction, pool);
+            check(poolEvaluator.evaluate(in, out), confusion, cost, "own pool");
+            try (OffHeapMatrix offHeapIn = new OffHeapMatrix(in); OffHeapMatrix offHeapOut = new OffHeapMatrix(out)) {
+                check(poolEvaluator.evaluate(offHeapIn, offHeapOut), confusion, cost, "off heap on own pool");
+            }
+        } finally {
+            pool.shutdown();
+        }
+        if (workers.get() == 0) {
+            throw new AssertionError("own pool: no chunk was calculated on the pool");
+        }
+        System.out.println("EvaluatorCheck: accuracy, cost and confusion matrix correct");
+    }
+
+    /**
+     * Compares an evaluation with the expected results.
+     *
+     * @param evaluation calculated evaluation
+     * @param confusion expected confusion matrix
+     * @param cost expected average cost
+     * @param name description of the data
+     */
+    private static void check(Evaluation evaluation, int[][] confusion, double cost, String name) {
+        int correct = 0;
+        for (int i = 0; i < CLASSES; i++) {
+            correct += confusion[i][i];
+            for (int j = 0; j < CLASSES; j++) {
+                if (evaluation.getConfusionMatrix()[i][j] != confusion[i][j]) {
+                    throw new AssertionError(name + ": confusion (" + i + ", " + j + ") is "
+                            + evaluation.getConfusionMatrix()[i][j] + " instead of " + confusion[i][j]);
+                }
+            }
+        }
+        if (evaluation.getTotal() != SIZE) {
+            throw new AssertionError(name + ": evaluated " + evaluation.getTotal() + " examples instead of " + SIZE);
+        }
+        if (Math.abs(evaluation.getAccuracy() - correct * 100.0 / SIZE) > EPSILON) {
+            throw new AssertionError(name + ": accuracy " + evaluation.getAccuracy() + " instead of " + correct * 100.0 / SIZE);
+        }
+        if (Math.abs(evaluation.getCost() - cost) > EPSILON) {
+            throw new AssertionError(name + ": cost " + evaluation.getCost() + " instead of " + cost);
+        }
+    }
+
+    /**
+     * Gets the row of the largest value of a column.
+     *
+     * @param A matrix
+     * @param j column index
+     * @return row index of the maximum
+     */
+    private static int argmax(Matrix A, int j) {
+        int max = 0;
+        for (int i = 1; i < A.getN(); i++) {
+            if (A.get(i, j) > A.get(max, j)) {
+                max = i;
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+* NeuralNetLib by ChriZ98 is licensed under a
+* Creative Commons Attribution-NonCommercial-ShareAlike 4.0 International License
+* https://creativecommons.org/licenses/by-nc-sa/4.0/
+ */
+package zindach.neuralnetlib.trainer;
+
+import java.util.Arrays;
+import java.util.Random;
+import zindach.mathlib.algebra.Matrix;
+import zindach.mathlib.algebra.OffHeapMatrix;
+import zindach.mathlib.algebra.SparseMatrix;
+
+/**
+ * Checks that TrainingSet hands out every example exactly once per epoch with
+ * its own output, for data on and off the heap, dense and sparse, and for
+ * batches split into parts. The first row of every example holds its index
+ * plus one, so the examples can be told apart.
+ *
+ * @author ChriZ98
+ */
+public class TrainingSetCheck {
+
+    private static final int SIZE = 53;
+    private static final int INPUTS = 6;
+    private static final int OUTPUTS = 3;
+    private static final int SLOTS = 2;
+    private static final Random RANDOM = new Random(42);
+    private static int checks;
+
+    /**
+     * Main method. Runs all checks and fails with an AssertionError on the
+     * first wrong result.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        Matrix in = data(INPUTS), out = data(OUTPUTS);
+        try (OffHeapMatrix offHeapIn = new OffHeapMatrix(in); OffHeapMatrix offHeapOut = new OffHeapMatrix(out)) {
+            for (int batchSize : new int[]{1, 7, 10, SIZE, SIZE + 3}) {
+                for (int parts : new int[]{1, 3}) {
+                    for (boolean sparse : new boolean[]{false, true}) {
+                        check(new TrainingSet(in, out), in, out, batchSize, parts, sparse);
+                        check(new TrainingSet(offHeapIn, offHeapOut), in, out, batchSize, parts, sparse);
+                    }
+                }
+            }
+        }
+        System.out.println("TrainingSetCheck: " + checks + " epochs correct");
+    }
+
+    /**
+     * Trains a few epochs and checks every loaded batch.
+     *
+     * @param set training data to check
+     * @param in expected input data
+     * @param out expected output data
+     * @param batchSize number of examples per batch
+     * @param parts number of parts per batch
+     * @param sparse true for sparse input batches
+     */
+    private static void check(TrainingSet set, Matrix in, Matrix out, int batchSize, int parts, boolean sparse) {
+        String name = "batch size " + batchSize + ", parts " + parts + (sparse ? ", sparse" : ", dense");
+        set.prepare(batchSize, parts, SLOTS, sparse);
+        int[] first = null;
+        boolean reordered = false;
+        for (int epoch = 0; epoch < 5; epoch++) {
+            set.shuffle();
+            int[] seen = new int[SIZE];
+            int[] order = new int[set.getBatches()];
+            for (int b = 0; b < set.getBatches(); b++) {
+                int slot = b % SLOTS;
+                set.load(b, slot);
+                order[b] = checkBatch(set, slot, in, out, seen, batchSize, sparse, name);
+                if (b > 0) {
+                    int other = (b - 1) % SLOTS;
+                    if (checkBatch(set, other, in, out, new int[SIZE], batchSize, sparse, name) != order[b - 1]) {
+                        throw new AssertionError("Loading slot " + slot + " changed slot " + other + " for " + name);
+                    }
+                }
+            }
+            for (int j = 0; j < SIZE; j++) {
+                if (seen[j] != 1) {
+                    throw new AssertionError("Example " + j + " was trained " + seen[j] + " times in one epoch for " + name);
+                }
+            }
+            if (first == null) {
+                first = order;
+            } else {
+                reordered |= !Arrays.equals(first, order);
+            }
+            checks++;
+        }
+        if (!reordered && set.getBatches() > 2) {
+            throw new AssertionError("Order of the batches never changed for " + name);
+        }
+    }
+
+    /**
+     * Checks the batch loaded into a slot against the data.
+     *
+     * @param set training data
+     * @param slot slot of the batch
+     * @param in expected input data
+     * @param out expected output data
+     * @param seen number of times every example was seen, updated
+     * @param batchSize number of examples per batch
+     * @param sparse true for sparse input batches
+     * @param name description of the case
+     * @return index of the first example of the batch
+     */
+    private static int checkBatch(TrainingSet set, int slot, Matrix in, Matrix out, int[] seen, int batchSize, boolean sparse, String name) {
+        int count = 0, first = -1;
+        for (int p = 0; p < set.getParts(slot); p++) {
+            Matrix partOut = set.getBatchOut(slot, p);
+            SparseMatrix sparseIn = sparse ? set.getSparseBatchIn(slot, p) : null;
+            Matrix denseIn = sparse ? null : set.getBatchIn(slot, p);
+            if (partOut.getM() > set.getPartSize()) {
+                throw new AssertionError("Part has " + partOut.getM() + " examples, more than " + set.getPartSize() + " for " + name);
+            }
+            for (int j = 0; j < partOut.getM(); j++) {
+                int example = (int) partOut.get(0, j) - 1;
+                first = first < 0 ? example : first;
+                seen[example]++;
+                for (int i = 0; i < OUTPUTS; i++) {
+                    compare(out.get(i, example), partOut.get(i, j), "output", name);
+                }
+                for (int i = 0; i < INPUTS; i++) {
+                    double value = sparseIn != null ? sparseIn.get(i, j) : denseIn.get(i, j);
+                    compare(in.get(i, example), value, "input", name);
+                }
+                count++;
+            }
+        }
+        if (count != set.getBatchSize(slot) || count > batchSize) {
+            throw new AssertionError("Batch has " + count + " examples but size " + set.getBatchSize(slot) + " for " + name);
+        }
+        if (first % batchSize != 0) {
+            throw new AssertionError("Batch starts at example " + first + " for " + name);
+        }
+        return first;
+    }
+
+    /**
+     * Compares a loaded value with the value of the data.
+     *
+     * @param expected value of the data
+     * @param actual loaded value
+     * @param kind input or output
+     * @param name description of the case
+     */
+    private static void compare(double expected, double actual, String kind, String name) {
+        if (expected != actual) {
+            throw new AssertionError("Wrong " + kind + " value " + actual + " instead of " + expected + " for " + name);
+        }
+    }
+
+    /**
+     * Creates data whose first row holds the index of the example plus one
+     * and whose other rows are random, with about half of the values zero.
+     *
+     * @param rows number of rows
+     * @return data with one example per column
+     */
+    private static Matrix data(int rows) {
+        Matrix C = new Matrix(rows, SIZE);
+        for (int j = 0; j < SIZE; j++) {
+            C.set(0, j, j + 1);
+            for (int i = 1; i < rows; i++) {
+                C.set(i, j, RANDOM.nextBoolean() ? 0 : RANDOM.nextDouble());
+            }
+        }
+        return C;
+    }
+}